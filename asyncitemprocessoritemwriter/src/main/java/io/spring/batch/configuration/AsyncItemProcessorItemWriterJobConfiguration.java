@@ -1,29 +1,43 @@
 package io.spring.batch.configuration;
 
+import io.spring.batch.domain.BatchItemProcessor;
+import io.spring.batch.domain.BoundedTaskExecutor;
+import io.spring.batch.domain.CachingItemProcessor;
+import io.spring.batch.domain.CompiledJdbcBatchItemWriterBuilder;
+import io.spring.batch.domain.CompletionOrderItemWriter;
 import io.spring.batch.domain.Customer;
 import io.spring.batch.domain.CustomerRowMapper;
+import io.spring.batch.domain.ForkJoinChunkProcessor;
+import io.spring.batch.domain.MicroBatchingItemProcessor;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.step.item.ChunkOrientedTasklet;
+import org.springframework.batch.core.step.item.SimpleChunkProvider;
 import org.springframework.batch.integration.async.AsyncItemProcessor;
-import org.springframework.batch.integration.async.AsyncItemWriter;
 import org.springframework.batch.item.ItemProcessor;
-import org.springframework.batch.item.database.BeanPropertyItemSqlParameterSourceProvider;
 import org.springframework.batch.item.database.JdbcBatchItemWriter;
 import org.springframework.batch.item.database.JdbcPagingItemReader;
 import org.springframework.batch.item.database.Order;
-import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
 import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
 import org.springframework.batch.item.database.support.MySqlPagingQueryProvider;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+import org.springframework.batch.repeat.support.RepeatTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 
 @Configuration
@@ -48,9 +62,10 @@ public class AsyncItemProcessorItemWriterJobConfiguration {
     }
 
     @Bean
+    @Profile("!forkjoin")
     public Step asyncItemProcessorItemWriterStep(JdbcPagingItemReader<Customer> pagingItemReader,
-                                                 AsyncItemProcessor<Customer, Customer> asyncItemProcessor,
-                                                 AsyncItemWriter<Customer> asyncItemWriter) {
+                                                 ItemProcessor<Customer, Future<Customer>> asyncItemProcessor,
+                                                 CompletionOrderItemWriter<Customer> asyncItemWriter) {
         return stepBuilderFactory.get("asyncItemProcessorItemWriterStep").
                 <Customer, Future<Customer>>chunk(1000).
                 reader(pagingItemReader).
@@ -59,6 +74,30 @@ public class AsyncItemProcessorItemWriterJobConfiguration {
                 build();
     }
 
+    @Bean(name = "asyncItemProcessorItemWriterStep")
+    @Profile("forkjoin")
+    public Step forkJoinStep(JdbcPagingItemReader<Customer> pagingItemReader,
+                             ItemProcessor<Customer, Customer> cachingItemProcessor,
+                             JdbcBatchItemWriter<Customer> customerItemWriter,
+                             ForkJoinPool processorForkJoinPool) {
+        RepeatTemplate chunkTemplate = new RepeatTemplate();
+        chunkTemplate.setCompletionPolicy(new SimpleCompletionPolicy(1000));
+
+        ForkJoinChunkProcessor<Customer, Customer> chunkProcessor =
+                new ForkJoinChunkProcessor<>(cachingItemProcessor, customerItemWriter, processorForkJoinPool);
+
+        return stepBuilderFactory.get("asyncItemProcessorItemWriterStep").
+                tasklet(new ChunkOrientedTasklet<>(new SimpleChunkProvider<>(pagingItemReader, chunkTemplate), chunkProcessor)).
+                stream(pagingItemReader).
+                build();
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @Profile("forkjoin")
+    public ForkJoinPool processorForkJoinPool() {
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
     @Bean
     public JdbcPagingItemReader<Customer> pagingItemReader() {
         MySqlPagingQueryProvider queryProvider = new MySqlPagingQueryProvider();
@@ -74,6 +113,7 @@ public class AsyncItemProcessorItemWriterJobConfiguration {
         return new JdbcPagingItemReaderBuilder<Customer>().
                 dataSource(dataSource).
                 fetchSize(1000).
+                pageSize(1000).
                 rowMapper(new CustomerRowMapper()).
                 queryProvider(queryProvider).
                 saveState(false).
@@ -92,28 +132,93 @@ public class AsyncItemProcessorItemWriterJobConfiguration {
     }
 
     @Bean
-    public AsyncItemProcessor<Customer, Customer> asyncItemProcessor(ItemProcessor<Customer, Customer> itemProcessor) throws Exception {
+    public CachingItemProcessor<Customer, Object, Customer> cachingItemProcessor(ItemProcessor<Customer, Customer> itemProcessor) {
+        CachingItemProcessor<Customer, Object, Customer> cachingItemProcessor = new CachingItemProcessor<>();
+        cachingItemProcessor.setDelegate(itemProcessor);
+        cachingItemProcessor.setKeyExtractor(customer -> Arrays.asList(customer.getFirstName(), customer.getLastName()));
+        cachingItemProcessor.setRebinder((customer, cached) -> new Customer(customer.getId(),
+                cached.getFirstName(),
+                cached.getLastName(),
+                customer.getBirthdate()));
+        cachingItemProcessor.setMaximumSize(100_000);
+        cachingItemProcessor.setName("itemProcessor");
+        return cachingItemProcessor;
+    }
+
+    @Bean
+    @Profile("!microbatch")
+    public AsyncItemProcessor<Customer, Customer> asyncItemProcessor(ItemProcessor<Customer, Customer> cachingItemProcessor,
+                                                                     BoundedTaskExecutor processorTaskExecutor) throws Exception {
         AsyncItemProcessor<Customer, Customer> asyncItemProcessor = new AsyncItemProcessor<>();
-        asyncItemProcessor.setDelegate(itemProcessor);
-        asyncItemProcessor.setTaskExecutor(new SimpleAsyncTaskExecutor());
+        asyncItemProcessor.setDelegate(cachingItemProcessor);
+        asyncItemProcessor.setTaskExecutor(processorTaskExecutor);
         asyncItemProcessor.afterPropertiesSet();
 
         return asyncItemProcessor;
     }
 
+    @Bean
+    @Profile("microbatch")
+    public BatchItemProcessor<Customer, Customer> batchItemProcessor() {
+        return customers -> {
+            Thread.sleep(new Random().nextInt(10));
+            List<Customer> enriched = new ArrayList<>(customers.size());
+            for (Customer customer : customers) {
+                enriched.add(new Customer(customer.getId(),
+                        customer.getFirstName().toUpperCase(),
+                        customer.getLastName().toUpperCase(),
+                        customer.getBirthdate()));
+            }
+            return enriched;
+        };
+    }
+
+    @Bean(name = "asyncItemProcessor")
+    @Profile("microbatch")
+    public MicroBatchingItemProcessor<Customer, Customer> microBatchingItemProcessor(BatchItemProcessor<Customer, Customer> batchItemProcessor,
+                                                                                     BoundedTaskExecutor processorTaskExecutor) {
+        MicroBatchingItemProcessor<Customer, Customer> microBatchingItemProcessor = new MicroBatchingItemProcessor<>();
+        microBatchingItemProcessor.setDelegate(batchItemProcessor);
+        microBatchingItemProcessor.setTaskExecutor(processorTaskExecutor);
+        microBatchingItemProcessor.setBatchSize(100);
+        return microBatchingItemProcessor;
+    }
+
+    @Bean
+    public BoundedTaskExecutor processorTaskExecutor(ThreadPoolTaskExecutor processorThreadPool,
+                                                     @Value("${batch.async.saturation-policy:BLOCK}") BoundedTaskExecutor.SaturationPolicy saturationPolicy) {
+        BoundedTaskExecutor boundedTaskExecutor = new BoundedTaskExecutor();
+        boundedTaskExecutor.setTaskExecutor(processorThreadPool);
+        boundedTaskExecutor.setMaxInFlight(processorThreadPool.getMaxPoolSize() * 4);
+        boundedTaskExecutor.setSaturationPolicy(saturationPolicy);
+        boundedTaskExecutor.setName("asyncItemProcessor");
+        return boundedTaskExecutor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor processorThreadPool() {
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setCorePoolSize(16);
+        taskExecutor.setMaxPoolSize(16);
+        taskExecutor.setThreadNamePrefix("processor-");
+        taskExecutor.setDaemon(true);
+        taskExecutor.setWaitForTasksToCompleteOnShutdown(true);
+        return taskExecutor;
+    }
+
     @Bean
     public JdbcBatchItemWriter<Customer> customerItemWriter() {
-        return new JdbcBatchItemWriterBuilder<Customer>().
+        return new CompiledJdbcBatchItemWriterBuilder<>(Customer.class).
                 dataSource(dataSource).
                 sql("INSERT INTO NEW_CUSTOMER VALUES (:id, :firstName, :lastName, :birthdate)").
-                itemSqlParameterSourceProvider(new BeanPropertyItemSqlParameterSourceProvider<>()).
                 build();
     }
 
     @Bean
-    public AsyncItemWriter<Customer> asyncItemWriter(JdbcBatchItemWriter<Customer> customerItemWriter) throws Exception {
-        AsyncItemWriter<Customer> asyncItemWriter = new AsyncItemWriter<>();
+    public CompletionOrderItemWriter<Customer> asyncItemWriter(JdbcBatchItemWriter<Customer> customerItemWriter) {
+        CompletionOrderItemWriter<Customer> asyncItemWriter = new CompletionOrderItemWriter<>();
         asyncItemWriter.setDelegate(customerItemWriter);
+        asyncItemWriter.setFlushSize(100);
         asyncItemWriter.afterPropertiesSet();
         return asyncItemWriter;
     }
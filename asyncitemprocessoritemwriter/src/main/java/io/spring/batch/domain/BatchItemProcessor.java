@@ -0,0 +1,23 @@
+package io.spring.batch.domain;
+
+import java.util.List;
+
+/**
+ * Processes a group of items at once, typically with a single call to a remote
+ * service, for a {@link MicroBatchingItemProcessor}.
+ *
+ * @param <I> the type of the input items
+ * @param <O> the type of the output items
+ */
+public interface BatchItemProcessor<I, O> {
+
+    /**
+     * Process a group of items.
+     *
+     * @param items the items to process
+     * @return the result of each item, in the same order, null for the items to
+     * filter out
+     * @throws Exception if the group cannot be processed, failing all its items
+     */
+    List<O> process(List<? extends I> items) throws Exception;
+}
@@ -0,0 +1,156 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Writes the results of an <code>AsyncItemProcessor</code> in the order they
+ * complete rather than the order of the chunk. Unlike
+ * <code>AsyncItemWriter</code>, which waits for each future in turn and writes
+ * the whole chunk once the slowest item is done, the finished items are written
+ * to the delegate in sub-batches of {@link #setFlushSize(int) flushSize} while
+ * the others are still processed, so only the last sub-batch waits for the
+ * slowest item.
+ * <p>
+ * All the sub-batches are written by the thread of the chunk, in its
+ * transaction, so the chunk is still committed or rolled back as a whole. As
+ * with <code>AsyncItemWriter</code>, null results are filtered out and the
+ * cause of a failed future is rethrown; the futures not written yet are then
+ * cancelled.
+ *
+ * @param <T> the type of the items
+ */
+public class CompletionOrderItemWriter<T> implements ItemStreamWriter<Future<T>>, InitializingBean {
+
+    private ItemWriter<T> delegate;
+
+    private int flushSize = 100;
+
+    private long pollMillis = 1;
+
+    /**
+     * The writer of the processed items.
+     *
+     * @param delegate the delegate {@link ItemWriter}
+     */
+    public void setDelegate(ItemWriter<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * The number of finished items written together. Defaults to 100.
+     *
+     * @param flushSize the size of the sub-batches
+     */
+    public void setFlushSize(int flushSize) {
+        this.flushSize = flushSize;
+    }
+
+    /**
+     * How long to wait for the oldest unfinished item before looking at the
+     * others again. Defaults to 1 ms.
+     *
+     * @param pollMillis the wait in milliseconds
+     */
+    public void setPollMillis(long pollMillis) {
+        this.pollMillis = pollMillis;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(delegate, "A delegate ItemWriter is required");
+        Assert.isTrue(flushSize > 0, "The flush size must be positive");
+    }
+
+    @Override
+    public void write(List<? extends Future<T>> items) throws Exception {
+        List<Future<T>> pending = new LinkedList<>(items);
+        List<T> done = new ArrayList<>(Math.min(flushSize, items.size()));
+
+        try {
+            while (!pending.isEmpty()) {
+                for (Iterator<Future<T>> iterator = pending.iterator(); iterator.hasNext(); ) {
+                    Future<T> future = iterator.next();
+                    if (future.isDone()) {
+                        iterator.remove();
+                        T item = unwrap(future);
+                        if (item != null) {
+                            done.add(item);
+                        }
+                    }
+                }
+
+                if (done.size() >= flushSize || (pending.isEmpty() && !done.isEmpty())) {
+                    delegate.write(new ArrayList<>(done));
+                    done.clear();
+                }
+                else if (!pending.isEmpty()) {
+                    await(pending.get(0));
+                }
+            }
+        }
+        catch (Exception e) {
+            for (Future<T> future : pending) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+    }
+
+    private T unwrap(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void await(Future<T> future) throws Exception {
+        try {
+            future.get(pollMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException | ExecutionException e) {
+            // the next pass writes the item or rethrows its failure
+        }
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        if (delegate instanceof ItemStream) {
+            ((ItemStream) delegate).open(executionContext);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (delegate instanceof ItemStream) {
+            ((ItemStream) delegate).update(executionContext);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (delegate instanceof ItemStream) {
+            ((ItemStream) delegate).close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package io.spring.batch.domain;
+
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.metrics.BatchMetrics;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.core.step.item.Chunk;
+import org.springframework.batch.core.step.item.SimpleChunkProcessor;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemWriter;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link SimpleChunkProcessor} processing the items of a chunk in parallel on a
+ * {@link ForkJoinPool}, for CPU bound item processors. The chunk is split in
+ * halves down to {@link #setThreshold(int) threshold} items, processed by work
+ * stealing subtasks, and the results are collected in the order of the items,
+ * without a task or a future per item.
+ * <p>
+ * As in {@link SimpleChunkProcessor}, filtered items are removed from the chunk
+ * and counted, and the first failure fails the chunk once the subtasks are
+ * done, the other failures being added to it as suppressed exceptions. The
+ * subtasks run in the scope of the step, so step scoped processors can be used.
+ * <p>
+ * Skips and retries are not supported: the processor plugs into a
+ * {@link org.springframework.batch.core.step.item.ChunkOrientedTasklet} of its
+ * own, not into a fault tolerant step, so any failure fails the chunk and the
+ * step, whatever skip policy is configured.
+ *
+ * @param <I> the type of the input items
+ * @param <O> the type of the output items
+ */
+public class ForkJoinChunkProcessor<I, O> extends SimpleChunkProcessor<I, O> {
+
+    private final ForkJoinPool forkJoinPool;
+
+    private int threshold = 50;
+
+    public ForkJoinChunkProcessor(ItemProcessor<? super I, ? extends O> itemProcessor,
+                                  ItemWriter<? super O> itemWriter,
+                                  ForkJoinPool forkJoinPool) {
+        super(itemProcessor, itemWriter);
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * The number of items below which a subtask processes its items instead of
+     * splitting them. Defaults to 50.
+     *
+     * @param threshold the size of the smallest subtasks
+     */
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Chunk<O> transform(StepContribution contribution, Chunk<I> inputs) throws Exception {
+        List<I> items = inputs.getItems();
+        Object[] results = new Object[items.size()];
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        forkJoinPool.invoke(new ProcessTask(contribution.getStepExecution(), items, results, failure, 0, items.size()));
+
+        if (failure.get() != null) {
+            inputs.clear();
+            throw failure.get();
+        }
+
+        Chunk<O> outputs = new Chunk<>();
+        int index = 0;
+        for (Chunk<I>.ChunkIterator iterator = inputs.iterator(); iterator.hasNext(); index++) {
+            iterator.next();
+            if (results[index] != null) {
+                outputs.add((O) results[index]);
+            }
+            else {
+                iterator.remove();
+            }
+        }
+        return outputs;
+    }
+
+    private class ProcessTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final StepExecution stepExecution;
+
+        private final List<I> items;
+
+        private final Object[] results;
+
+        private final AtomicReference<Exception> failure;
+
+        private final int from;
+
+        private final int to;
+
+        ProcessTask(StepExecution stepExecution, List<I> items, Object[] results,
+                    AtomicReference<Exception> failure, int from, int to) {
+            this.stepExecution = stepExecution;
+            this.items = items;
+            this.results = results;
+            this.failure = failure;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > threshold) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ProcessTask(stepExecution, items, results, failure, from, middle),
+                        new ProcessTask(stepExecution, items, results, failure, middle, to));
+                return;
+            }
+
+            StepSynchronizationManager.register(stepExecution);
+            try {
+                for (int i = from; i < to && failure.get() == null; i++) {
+                    process(i);
+                }
+            }
+            finally {
+                StepSynchronizationManager.close();
+            }
+        }
+
+        private void process(int index) {
+            String status = BatchMetrics.STATUS_SUCCESS;
+            Timer.Sample sample = BatchMetrics.createTimerSample();
+            try {
+                results[index] = doProcess(items.get(index));
+            }
+            catch (Exception e) {
+                status = BatchMetrics.STATUS_FAILURE;
+                if (!failure.compareAndSet(null, e)) {
+                    failure.get().addSuppressed(e);
+                }
+            }
+            finally {
+                stopTimer(sample, stepExecution, "item.process", status, "Item processing");
+            }
+        }
+    }
+}
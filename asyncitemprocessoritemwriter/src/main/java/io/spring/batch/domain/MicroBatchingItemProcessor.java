@@ -0,0 +1,202 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Asynchronous {@link ItemProcessor} calling a {@link BatchItemProcessor} once
+ * per group of items instead of once per item, to be used with an async writer
+ * like <code>AsyncItemProcessor</code> is. Items are added to the open group,
+ * which is submitted to the {@link TaskExecutor} once it holds
+ * {@link #setBatchSize(int) batchSize} items or when an item arrives after
+ * {@link #setMaxWaitMillis(long) maxWaitMillis} since the first one. The last
+ * group of a chunk is submitted as soon as the writer waits for one of its
+ * items.
+ * <p>
+ * Each item gets a {@link Future} of its own result; when the delegate fails,
+ * every item of the group fails with its exception.
+ *
+ * @param <I> the type of the input items
+ * @param <O> the type of the output items
+ */
+public class MicroBatchingItemProcessor<I, O> implements ItemProcessor<I, Future<O>>, InitializingBean {
+
+    private BatchItemProcessor<I, O> delegate;
+
+    private TaskExecutor taskExecutor;
+
+    private int batchSize = 100;
+
+    private long maxWaitMillis = 100;
+
+    private Group openGroup;
+
+    /**
+     * The processor of the groups.
+     *
+     * @param delegate the delegate {@link BatchItemProcessor}
+     */
+    public void setDelegate(BatchItemProcessor<I, O> delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * The executor processing the groups.
+     *
+     * @param taskExecutor a {@link TaskExecutor}
+     */
+    public void setTaskExecutor(TaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * The number of items of a full group. Defaults to 100.
+     *
+     * @param batchSize the size of the groups
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * How long a group waits for more items. Defaults to 100 ms.
+     *
+     * @param maxWaitMillis the time window of a group in milliseconds
+     */
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(delegate, "A delegate BatchItemProcessor is required");
+        Assert.notNull(taskExecutor, "A TaskExecutor is required");
+        Assert.isTrue(batchSize > 0, "The batch size must be positive");
+    }
+
+    @Override
+    public Future<O> process(I item) {
+        Group expired = null;
+        Group full = null;
+        ItemFuture future;
+
+        synchronized (this) {
+            if (openGroup != null && openGroup.isExpired()) {
+                expired = openGroup;
+                openGroup = null;
+            }
+            if (openGroup == null) {
+                openGroup = new Group();
+            }
+
+            future = openGroup.add(item);
+            if (openGroup.items.size() >= batchSize) {
+                full = openGroup;
+                openGroup = null;
+            }
+        }
+
+        if (expired != null) {
+            submit(expired);
+        }
+        if (full != null) {
+            submit(full);
+        }
+        return future;
+    }
+
+    /**
+     * Submits a group unless it already was.
+     */
+    private void submit(Group group) {
+        synchronized (this) {
+            if (group.submitted) {
+                return;
+            }
+            group.submitted = true;
+            if (openGroup == group) {
+                openGroup = null;
+            }
+        }
+
+        taskExecutor.execute(group::process);
+    }
+
+    private class Group {
+
+        private final long start = System.nanoTime();
+
+        private final List<I> items = new ArrayList<>(batchSize);
+
+        private final List<ItemFuture> futures = new ArrayList<>(batchSize);
+
+        private boolean submitted;
+
+        ItemFuture add(I item) {
+            ItemFuture future = new ItemFuture(this);
+            items.add(item);
+            futures.add(future);
+            return future;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        }
+
+        void process() {
+            try {
+                List<O> results = delegate.process(items);
+                Assert.state(results != null && results.size() == items.size(),
+                        "The delegate must return one result per item");
+                for (int i = 0; i < futures.size(); i++) {
+                    futures.get(i).complete(results.get(i));
+                }
+            }
+            catch (Throwable e) {
+                for (ItemFuture future : futures) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The result of an item, submitting its group when waited for.
+     */
+    private class ItemFuture extends CompletableFuture<O> {
+
+        private final Group group;
+
+        ItemFuture(Group group) {
+            this.group = group;
+        }
+
+        @Override
+        public O get() throws InterruptedException, ExecutionException {
+            submit(group);
+            return super.get();
+        }
+
+        @Override
+        public O get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            submit(group);
+            return super.get(timeout, unit);
+        }
+
+        @Override
+        public O join() {
+            submit(group);
+            return super.join();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package io.spring.batch;
+
+import io.spring.batch.domain.BulkLoadItemWriter;
+import io.spring.batch.domain.CompiledJdbcBatchItemWriterBuilder;
+import io.spring.batch.domain.Customer;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.BeanPropertyItemSqlParameterSourceProvider;
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
+import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the {@link BulkLoadItemWriter} of the <code>bulkload</code> profile
+ * with the {@link JdbcBatchItemWriter}s it replaces, the one binding bean
+ * properties and the compiled one of the default profile, writing the same
+ * chunks of customers one transaction per chunk. The database is an in-memory
+ * H2 unless a JDBC URL, user and password are given as arguments, for example
+ * <code>jdbc:h2:file:./data/benchmark</code> to include the disk.
+ * <p>
+ * Not part of the job, run it from the packaged module with
+ * <code>java -cp target/localpartitioning-1.0-SNAPSHOT.jar
+ * -Dloader.main=io.spring.batch.BulkLoadItemWriterBenchmark
+ * org.springframework.boot.loader.PropertiesLauncher [url user password]</code>.
+ */
+public class BulkLoadItemWriterBenchmark {
+
+    private static final int ROWS = 500_000;
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1";
+        String username = args.length > 1 ? args[1] : "sa";
+        String password = args.length > 2 ? args[2] : "";
+        DataSource dataSource = new DriverManagerDataSource(url, username, password);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS benchmark_customer");
+        jdbcTemplate.execute("CREATE TABLE benchmark_customer (id INT NOT NULL, firstName VARCHAR(255), " +
+                "lastName VARCHAR(255), birthdate VARCHAR(255), PRIMARY KEY (id))");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        List<List<Customer>> chunks = new ArrayList<>();
+        for (int start = 0; start < ROWS; start += CHUNK_SIZE) {
+            List<Customer> chunk = new ArrayList<>(CHUNK_SIZE);
+            for (int id = start; id < start + CHUNK_SIZE; id++) {
+                chunk.add(new Customer(id, "first" + id % 500, "last" + id % 700,
+                        LocalDateTime.of(1950 + id % 50, id % 12 + 1, id % 28 + 1, id % 24, id % 60)));
+            }
+            chunks.add(chunk);
+        }
+
+        JdbcBatchItemWriter<Customer> beanPropertyItemWriter = new JdbcBatchItemWriterBuilder<Customer>().
+                dataSource(dataSource).
+                sql("INSERT INTO benchmark_customer VALUES (:id, :firstName, :lastName, :birthdate)").
+                itemSqlParameterSourceProvider(new BeanPropertyItemSqlParameterSourceProvider<>()).
+                build();
+        beanPropertyItemWriter.afterPropertiesSet();
+
+        JdbcBatchItemWriter<Customer> compiledItemWriter = new CompiledJdbcBatchItemWriterBuilder<>(Customer.class).
+                dataSource(dataSource).
+                sql("INSERT INTO benchmark_customer VALUES (:id, :firstName, :lastName, :birthdate)").
+                build();
+        compiledItemWriter.afterPropertiesSet();
+
+        BulkLoadItemWriter<Customer> bulkLoadItemWriter = new BulkLoadItemWriter<>();
+        bulkLoadItemWriter.setDataSource(dataSource);
+        bulkLoadItemWriter.setTable("benchmark_customer");
+        bulkLoadItemWriter.setColumns("id, firstName, lastName, birthdate");
+        bulkLoadItemWriter.setFieldExtractor(customer -> new Object[]{customer.getId(),
+                customer.getFirstName(),
+                customer.getLastName(),
+                customer.getBirthdate()});
+        bulkLoadItemWriter.afterPropertiesSet();
+
+        // the first round warms up the JIT and the database, compare the later ones
+        for (int round = 1; round <= ROUNDS; round++) {
+            System.out.println("Round " + round + " of " + ROUNDS);
+            run("JdbcBatchItemWriter", beanPropertyItemWriter, chunks, jdbcTemplate, transactionTemplate);
+            run("compiled JdbcBatchItemWriter", compiledItemWriter, chunks, jdbcTemplate, transactionTemplate);
+            run("BulkLoadItemWriter", bulkLoadItemWriter, chunks, jdbcTemplate, transactionTemplate);
+        }
+
+        jdbcTemplate.execute("DROP TABLE benchmark_customer");
+    }
+
+    private static void run(String name, ItemWriter<Customer> writer, List<List<Customer>> chunks,
+                            JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        jdbcTemplate.execute("TRUNCATE TABLE benchmark_customer");
+
+        long start = System.nanoTime();
+        for (List<Customer> chunk : chunks) {
+            transactionTemplate.execute(status -> {
+                try {
+                    writer.write(chunk);
+                }
+                catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return null;
+            });
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM benchmark_customer", Integer.class);
+        if (count == null || count != ROWS) {
+            throw new IllegalStateException(name + " wrote " + count + " rows instead of " + ROWS);
+        }
+
+        System.out.printf("  %-30s %,d rows in %,d ms (%,d rows/s)%n", name, ROWS, elapsed / 1_000_000,
+                ROWS * 1_000_000_000L / elapsed);
+    }
+}
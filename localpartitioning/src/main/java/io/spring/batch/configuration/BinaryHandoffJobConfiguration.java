@@ -0,0 +1,145 @@
+package io.spring.batch.configuration;
+
+import io.spring.batch.domain.BinaryCustomerFilePartitioner;
+import io.spring.batch.domain.BinaryCustomerItemReader;
+import io.spring.batch.domain.BinaryCustomerItemWriter;
+import io.spring.batch.domain.ConcurrencyPlanner;
+import io.spring.batch.domain.Customer;
+import io.spring.batch.domain.CustomerRowMapper;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
+import org.springframework.batch.item.database.support.H2PagingQueryProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.sql.DataSource;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands the <code>customer</code> table over to <code>new_customer</code> through
+ * a binary customer file, <code>handoff/customer.bin</code> or the one given by
+ * the <code>file</code> job parameter: the table is written to the file, then
+ * the file is loaded by partitions reading ranges of its blocks.
+ */
+@Configuration
+@Profile("binary")
+public class BinaryHandoffJobConfiguration {
+    private final JobBuilderFactory jobBuilderFactory;
+    private final StepBuilderFactory stepBuilderFactory;
+    private final DataSource dataSource;
+
+    public BinaryHandoffJobConfiguration(JobBuilderFactory jobBuilderFactory,
+                                         StepBuilderFactory stepBuilderFactory,
+                                         DataSource dataSource) {
+        this.jobBuilderFactory = jobBuilderFactory;
+        this.stepBuilderFactory = stepBuilderFactory;
+        this.dataSource = dataSource;
+    }
+
+    @Bean
+    public Job binaryHandoffJob(Step binaryWriteStep, Step binaryLoadMasterStep) {
+        return jobBuilderFactory.get("binaryHandoffJob").
+                start(binaryWriteStep).
+                next(binaryLoadMasterStep).
+                build();
+    }
+
+    @Bean
+    public Step binaryWriteStep(JdbcPagingItemReader<Customer> binaryTableItemReader,
+                                BinaryCustomerItemWriter binaryCustomerItemWriter) {
+        return stepBuilderFactory.get("binaryWriteStep").
+                <Customer, Customer>chunk(1000).
+                reader(binaryTableItemReader).
+                writer(binaryCustomerItemWriter).
+                build();
+    }
+
+    @Bean
+    public JdbcPagingItemReader<Customer> binaryTableItemReader() {
+        H2PagingQueryProvider queryProvider = new H2PagingQueryProvider();
+        queryProvider.setSelectClause("id, firstName, lastName, birthdate");
+        queryProvider.setFromClause("from customer");
+
+        Map<String, Order> sortKeys = new HashMap<>(1);
+
+        sortKeys.put("id", Order.ASCENDING);
+
+        queryProvider.setSortKeys(sortKeys);
+
+        return new JdbcPagingItemReaderBuilder<Customer>().
+                name("binaryTableItemReader").
+                dataSource(dataSource).
+                fetchSize(1000).
+                pageSize(1000).
+                rowMapper(new CustomerRowMapper()).
+                queryProvider(queryProvider).
+                build();
+    }
+
+    @Bean
+    @StepScope
+    public BinaryCustomerItemWriter binaryCustomerItemWriter(
+            @Value("#{jobParameters['file'] ?: 'handoff/customer.bin'}") String file) {
+        BinaryCustomerItemWriter binaryCustomerItemWriter = new BinaryCustomerItemWriter();
+        binaryCustomerItemWriter.setPath(Paths.get(file));
+        return binaryCustomerItemWriter;
+    }
+
+    @Bean
+    public Step binaryLoadMasterStep(Step binaryLoadSlaveStep,
+                                     BinaryCustomerFilePartitioner binaryCustomerFilePartitioner,
+                                     ConcurrencyPlanner concurrencyPlanner,
+                                     ThreadPoolTaskExecutor partitionTaskExecutor) {
+        return stepBuilderFactory.get("binaryLoadMasterStep").
+                partitioner(binaryLoadSlaveStep.getName(), binaryCustomerFilePartitioner).
+                step(binaryLoadSlaveStep).
+                gridSize(concurrencyPlanner.getThreadCount()).
+                taskExecutor(partitionTaskExecutor).
+                build();
+    }
+
+    @Bean
+    @JobScope
+    public BinaryCustomerFilePartitioner binaryCustomerFilePartitioner(
+            @Value("#{jobParameters['file'] ?: 'handoff/customer.bin'}") String file) {
+        BinaryCustomerFilePartitioner binaryCustomerFilePartitioner = new BinaryCustomerFilePartitioner();
+        binaryCustomerFilePartitioner.setPath(Paths.get(file));
+        return binaryCustomerFilePartitioner;
+    }
+
+    @Bean
+    public Step binaryLoadSlaveStep(BinaryCustomerItemReader binaryCustomerItemReader,
+                                    ItemWriter<Customer> customerItemWriter) {
+        return stepBuilderFactory.get("binaryLoadSlaveStep").
+                <Customer, Customer>chunk(1000).
+                reader(binaryCustomerItemReader).
+                writer(customerItemWriter).
+                build();
+    }
+
+    @Bean
+    @StepScope
+    public BinaryCustomerItemReader binaryCustomerItemReader(
+            @Value("#{jobParameters['file'] ?: 'handoff/customer.bin'}") String file,
+            @Value("#{stepExecutionContext['firstBlock']}") Integer firstBlock,
+            @Value("#{stepExecutionContext['lastBlock']}") Integer lastBlock) {
+        BinaryCustomerItemReader binaryCustomerItemReader = new BinaryCustomerItemReader();
+        binaryCustomerItemReader.setPath(Paths.get(file));
+        binaryCustomerItemReader.setFirstBlock(firstBlock);
+        binaryCustomerItemReader.setLastBlock(lastBlock);
+        return binaryCustomerItemReader;
+    }
+}
@@ -0,0 +1,84 @@
+package io.spring.batch.configuration;
+
+import io.spring.batch.domain.ColumnRangePartitioner;
+import io.spring.batch.domain.ConcurrencyPlanner;
+import io.spring.batch.domain.QuantileColumnRangePartitioner;
+import io.spring.batch.domain.TimestampColumnMigrationTasklet;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.sql.DataSource;
+
+/**
+ * Converts <code>customer.birthdate</code> and <code>new_customer.birthdate</code>
+ * from <code>VARCHAR</code> to <code>TIMESTAMP</code> in an existing database.
+ * The rows are converted in parallel partitions of <code>id</code> ranges; the
+ * job can be restarted after a failure and does nothing on tables that are
+ * already converted.
+ */
+@Configuration
+@Profile("migrate-birthdate")
+public class BirthdateMigrationJobConfiguration {
+    private final JobBuilderFactory jobBuilderFactory;
+    private final StepBuilderFactory stepBuilderFactory;
+    private final DataSource dataSource;
+
+    public BirthdateMigrationJobConfiguration(JobBuilderFactory jobBuilderFactory,
+                                              StepBuilderFactory stepBuilderFactory,
+                                              DataSource dataSource) {
+        this.jobBuilderFactory = jobBuilderFactory;
+        this.stepBuilderFactory = stepBuilderFactory;
+        this.dataSource = dataSource;
+    }
+
+    @Bean
+    public Job birthdateMigrationJob(ConcurrencyPlanner concurrencyPlanner,
+                                     ThreadPoolTaskExecutor partitionTaskExecutor) {
+        return jobBuilderFactory.get("birthdateMigrationJob").
+                start(migrationStep("customer", TimestampColumnMigrationTasklet.Phase.PREPARE)).
+                next(conversionStep("customer", concurrencyPlanner, partitionTaskExecutor)).
+                next(migrationStep("customer", TimestampColumnMigrationTasklet.Phase.FINALIZE)).
+                next(migrationStep("new_customer", TimestampColumnMigrationTasklet.Phase.PREPARE)).
+                next(conversionStep("new_customer", concurrencyPlanner, partitionTaskExecutor)).
+                next(migrationStep("new_customer", TimestampColumnMigrationTasklet.Phase.FINALIZE)).
+                build();
+    }
+
+    private Step conversionStep(String table,
+                                ConcurrencyPlanner concurrencyPlanner,
+                                ThreadPoolTaskExecutor partitionTaskExecutor) {
+        ColumnRangePartitioner partitioner = new QuantileColumnRangePartitioner();
+        partitioner.setColumn("id");
+        partitioner.setDataSource(dataSource);
+        partitioner.setTable(table);
+        // the rows are counted when the step runs, not when the job is built
+        partitioner.setConcurrencyPlanner(concurrencyPlanner);
+
+        Step convertStep = migrationStep(table, TimestampColumnMigrationTasklet.Phase.CONVERT);
+
+        return stepBuilderFactory.get(table + "BirthdateConversion").
+                partitioner(convertStep.getName(), partitioner).
+                step(convertStep).
+                taskExecutor(partitionTaskExecutor).
+                build();
+    }
+
+    private Step migrationStep(String table, TimestampColumnMigrationTasklet.Phase phase) {
+        TimestampColumnMigrationTasklet tasklet = new TimestampColumnMigrationTasklet();
+        tasklet.setDataSource(dataSource);
+        tasklet.setTable(table);
+        tasklet.setColumn("birthdate");
+        tasklet.setKeyColumn("id");
+        tasklet.setPhase(phase);
+
+        return stepBuilderFactory.get(table + "Birthdate" + phase.name().charAt(0) + phase.name().substring(1).toLowerCase()).
+                tasklet(tasklet).
+                build();
+    }
+}
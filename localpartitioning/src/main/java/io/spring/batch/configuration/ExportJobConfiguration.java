@@ -0,0 +1,223 @@
+package io.spring.batch.configuration;
+
+import io.spring.batch.domain.BoundedTaskExecutor;
+import io.spring.batch.domain.ColumnRangePartitioner;
+import io.spring.batch.domain.ConcurrencyPlanner;
+import io.spring.batch.domain.Customer;
+import io.spring.batch.domain.CustomerLineAggregator;
+import io.spring.batch.domain.CustomerRowMapper;
+import io.spring.batch.domain.FileMergeTasklet;
+import io.spring.batch.domain.JsonLinesItemWriter;
+import io.spring.batch.domain.ParallelGzipItemWriter;
+import io.spring.batch.domain.PartFileListener;
+import io.spring.batch.domain.QuantileColumnRangePartitioner;
+import io.spring.batch.domain.WorkQueuePartitionHandler;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
+import org.springframework.batch.item.database.support.H2PagingQueryProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exports the <code>customer</code> table, or the one given by the
+ * <code>table</code> job parameter, as JSON Lines. Each partition writes its own
+ * file, then the files are concatenated into the <code>output</code> job
+ * parameter, <code>export/&lt;table&gt;.jsonl</code> by default. With the
+ * <code>compress=true</code> job parameter the partitions write gzip compressed
+ * on all processors, and the concatenated result is still a single gzip file,
+ * <code>export/&lt;table&gt;.jsonl.gz</code> by default.
+ */
+@Configuration
+@Profile("export")
+public class ExportJobConfiguration {
+    private final JobBuilderFactory jobBuilderFactory;
+    private final StepBuilderFactory stepBuilderFactory;
+    private final DataSource dataSource;
+
+    public ExportJobConfiguration(JobBuilderFactory jobBuilderFactory,
+                                  StepBuilderFactory stepBuilderFactory,
+                                  DataSource dataSource) {
+        this.jobBuilderFactory = jobBuilderFactory;
+        this.stepBuilderFactory = stepBuilderFactory;
+        this.dataSource = dataSource;
+    }
+
+    @Bean
+    public Job exportJob(Step exportMasterStep, Step exportMergeStep) {
+        return jobBuilderFactory.get("exportJob").
+                start(exportMasterStep).
+                next(exportMergeStep).
+                build();
+    }
+
+    @Bean
+    public Step exportMasterStep(Step exportSlaveStep,
+                                 ColumnRangePartitioner exportPartitioner,
+                                 WorkQueuePartitionHandler exportPartitionHandler) {
+        return stepBuilderFactory.get("exportMasterStep").
+                partitioner(exportSlaveStep.getName(), exportPartitioner).
+                partitionHandler(exportPartitionHandler).
+                build();
+    }
+
+    @Bean
+    @JobScope
+    public WorkQueuePartitionHandler exportPartitionHandler(Step exportSlaveStep,
+                                                            ColumnRangePartitioner exportPartitioner,
+                                                            ConcurrencyPlanner concurrencyPlanner,
+                                                            ThreadPoolTaskExecutor partitionTaskExecutor) {
+        WorkQueuePartitionHandler partitionHandler = new WorkQueuePartitionHandler();
+        partitionHandler.setStep(exportSlaveStep);
+        partitionHandler.setGridSize(concurrencyPlanner.getGridSize(exportPartitioner.countRows()));
+        partitionHandler.setTaskExecutor(partitionTaskExecutor);
+        return partitionHandler;
+    }
+
+    @Bean
+    @JobScope
+    public ColumnRangePartitioner exportPartitioner(@Value("#{jobParameters['table'] ?: 'customer'}") String table) {
+        ColumnRangePartitioner columnRangePartitioner = new QuantileColumnRangePartitioner();
+        columnRangePartitioner.setColumn("id");
+        columnRangePartitioner.setDataSource(dataSource);
+        columnRangePartitioner.setTable(table);
+        return columnRangePartitioner;
+    }
+
+    @Bean
+    public Step exportSlaveStep(JdbcPagingItemReader<Customer> exportItemReader,
+                                ItemStreamWriter<Customer> exportItemWriter,
+                                PartFileListener exportPartFileListener) {
+        // several compressed blocks per chunk, see ParallelGzipItemWriter
+        return stepBuilderFactory.get("exportSlaveStep").
+                <Customer, Customer>chunk(5000).
+                reader(exportItemReader).
+                writer(exportItemWriter).
+                listener(exportPartFileListener).
+                build();
+    }
+
+    @Bean
+    @StepScope
+    public PartFileListener exportPartFileListener(@Value("#{jobParameters['table'] ?: 'customer'}") String table,
+                                                   @Value("#{jobParameters['output']}") String output,
+                                                   @Value("#{jobParameters['compress']}") String compress,
+                                                   @Value("#{stepExecutionContext['minValue']}") Long minValue) {
+        PartFileListener partFileListener = new PartFileListener();
+        partFileListener.setTarget(outputPath(table, output, compress));
+        partFileListener.setNumber(minValue);
+        return partFileListener;
+    }
+
+    @Bean
+    @StepScope
+    public JdbcPagingItemReader<Customer> exportItemReader(@Value("#{jobParameters['table'] ?: 'customer'}") String table,
+                                                           @Value("#{stepExecutionContext['minValue']}") Long minValue,
+                                                           @Value("#{stepExecutionContext['maxValue']}") Long maxValue) {
+        H2PagingQueryProvider queryProvider = new H2PagingQueryProvider();
+        queryProvider.setSelectClause("id, firstName, lastName, birthdate");
+        queryProvider.setFromClause("from " + table);
+        queryProvider.setWhereClause("where id >= " + minValue + " and id <= " + maxValue);
+
+        Map<String, Order> sortKeys = new HashMap<>(1);
+
+        sortKeys.put("id", Order.ASCENDING);
+
+        queryProvider.setSortKeys(sortKeys);
+
+        return new JdbcPagingItemReaderBuilder<Customer>().
+                name("exportItemReader").
+                dataSource(dataSource).
+                fetchSize(1000).
+                pageSize(1000).
+                rowMapper(new CustomerRowMapper()).
+                queryProvider(queryProvider).
+                build();
+    }
+
+    @Bean
+    @StepScope
+    public ItemStreamWriter<Customer> exportItemWriter(@Value("#{jobParameters['table'] ?: 'customer'}") String table,
+                                                       @Value("#{jobParameters['output']}") String output,
+                                                       @Value("#{jobParameters['compress']}") String compress,
+                                                       @Value("#{stepExecutionContext['minValue']}") Long minValue,
+                                                       BoundedTaskExecutor compressionTaskExecutor) {
+        CustomerLineAggregator customerLineAggregator = new CustomerLineAggregator();
+        Path path = FileMergeTasklet.partPath(outputPath(table, output, compress), minValue);
+
+        if (Boolean.parseBoolean(compress)) {
+            ParallelGzipItemWriter<Customer> parallelGzipItemWriter = new ParallelGzipItemWriter<>();
+            parallelGzipItemWriter.setName("exportItemWriter");
+            parallelGzipItemWriter.setPath(path);
+            parallelGzipItemWriter.setLineAggregator(customerLineAggregator);
+            parallelGzipItemWriter.setTaskExecutor(compressionTaskExecutor);
+            parallelGzipItemWriter.setBlockSize(64 * 1024);
+            return parallelGzipItemWriter;
+        }
+
+        JsonLinesItemWriter<Customer> jsonLinesItemWriter = new JsonLinesItemWriter<>();
+        jsonLinesItemWriter.setName("exportItemWriter");
+        jsonLinesItemWriter.setPath(path);
+        jsonLinesItemWriter.setSerializer(customerLineAggregator::write);
+        return jsonLinesItemWriter;
+    }
+
+    @Bean
+    public BoundedTaskExecutor compressionTaskExecutor(ThreadPoolTaskExecutor compressionThreadPool) {
+        BoundedTaskExecutor boundedTaskExecutor = new BoundedTaskExecutor();
+        boundedTaskExecutor.setTaskExecutor(compressionThreadPool);
+        boundedTaskExecutor.setMaxInFlight(compressionThreadPool.getMaxPoolSize() * 2);
+        boundedTaskExecutor.setName("compression");
+        return boundedTaskExecutor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor compressionThreadPool() {
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setCorePoolSize(Runtime.getRuntime().availableProcessors());
+        taskExecutor.setMaxPoolSize(Runtime.getRuntime().availableProcessors());
+        taskExecutor.setThreadNamePrefix("gzip-");
+        taskExecutor.setDaemon(true);
+        return taskExecutor;
+    }
+
+    @Bean
+    public Step exportMergeStep(FileMergeTasklet exportMergeTasklet) {
+        return stepBuilderFactory.get("exportMergeStep").
+                tasklet(exportMergeTasklet).
+                build();
+    }
+
+    @Bean
+    @StepScope
+    public FileMergeTasklet exportMergeTasklet(@Value("#{jobParameters['table'] ?: 'customer'}") String table,
+                                               @Value("#{jobParameters['output']}") String output,
+                                               @Value("#{jobParameters['compress']}") String compress) {
+        FileMergeTasklet fileMergeTasklet = new FileMergeTasklet();
+        fileMergeTasklet.setTarget(outputPath(table, output, compress));
+        return fileMergeTasklet;
+    }
+
+    private static Path outputPath(String table, String output, String compress) {
+        if (output != null) {
+            return Paths.get(output);
+        }
+        return Paths.get("export", table + (Boolean.parseBoolean(compress) ? ".jsonl.gz" : ".jsonl"));
+    }
+}
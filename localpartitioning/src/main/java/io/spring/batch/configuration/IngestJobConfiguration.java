@@ -0,0 +1,123 @@
+package io.spring.batch.configuration;
+
+import io.spring.batch.domain.CompiledJdbcBatchItemWriterBuilder;
+import io.spring.batch.domain.ConcurrencyPlanner;
+import io.spring.batch.domain.Customer;
+import io.spring.batch.domain.CustomerFieldSetMapper;
+import io.spring.batch.domain.FileRangeItemReader;
+import io.spring.batch.domain.FileRangePartitioner;
+import io.spring.batch.domain.WorkQueuePartitionHandler;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
+import org.springframework.batch.item.file.mapping.DefaultLineMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.sql.DataSource;
+import java.nio.file.Paths;
+
+/**
+ * Loads a CSV file of <code>id,firstName,lastName,birthdate</code> lines with a
+ * header line, <code>input/customer.csv</code> or the one given by the
+ * <code>input</code> job parameter, into the <code>customer</code> table. The
+ * file is split into line aligned byte ranges loaded in parallel.
+ */
+@Configuration
+@Profile("ingest")
+public class IngestJobConfiguration {
+    private final JobBuilderFactory jobBuilderFactory;
+    private final StepBuilderFactory stepBuilderFactory;
+    private final DataSource dataSource;
+
+    public IngestJobConfiguration(JobBuilderFactory jobBuilderFactory,
+                                  StepBuilderFactory stepBuilderFactory,
+                                  DataSource dataSource) {
+        this.jobBuilderFactory = jobBuilderFactory;
+        this.stepBuilderFactory = stepBuilderFactory;
+        this.dataSource = dataSource;
+    }
+
+    @Bean
+    public Job ingestJob(Step ingestMasterStep) {
+        return jobBuilderFactory.get("ingestJob").
+                start(ingestMasterStep).
+                build();
+    }
+
+    @Bean
+    public Step ingestMasterStep(Step ingestSlaveStep,
+                                 FileRangePartitioner fileRangePartitioner,
+                                 WorkQueuePartitionHandler ingestPartitionHandler) {
+        return stepBuilderFactory.get("ingestMasterStep").
+                partitioner(ingestSlaveStep.getName(), fileRangePartitioner).
+                partitionHandler(ingestPartitionHandler).
+                build();
+    }
+
+    @Bean
+    public WorkQueuePartitionHandler ingestPartitionHandler(Step ingestSlaveStep,
+                                                            ConcurrencyPlanner concurrencyPlanner,
+                                                            ThreadPoolTaskExecutor partitionTaskExecutor) {
+        WorkQueuePartitionHandler partitionHandler = new WorkQueuePartitionHandler();
+        partitionHandler.setStep(ingestSlaveStep);
+        partitionHandler.setGridSize(concurrencyPlanner.getThreadCount() * 4);
+        partitionHandler.setTaskExecutor(partitionTaskExecutor);
+        return partitionHandler;
+    }
+
+    @Bean
+    @JobScope
+    public FileRangePartitioner fileRangePartitioner(@Value("#{jobParameters['input'] ?: 'input/customer.csv'}") String input) {
+        FileRangePartitioner fileRangePartitioner = new FileRangePartitioner();
+        fileRangePartitioner.setPath(Paths.get(input));
+        return fileRangePartitioner;
+    }
+
+    @Bean
+    public Step ingestSlaveStep(FileRangeItemReader<Customer> fileRangeItemReader,
+                                JdbcBatchItemWriter<Customer> customerTableItemWriter) {
+        return stepBuilderFactory.get("ingestSlaveStep").
+                <Customer, Customer>chunk(1000).
+                reader(fileRangeItemReader).
+                writer(customerTableItemWriter).
+                build();
+    }
+
+    @Bean
+    @StepScope
+    public FileRangeItemReader<Customer> fileRangeItemReader(@Value("#{jobParameters['input'] ?: 'input/customer.csv'}") String input,
+                                                             @Value("#{stepExecutionContext['startOffset']}") Long startOffset,
+                                                             @Value("#{stepExecutionContext['endOffset']}") Long endOffset) {
+        DelimitedLineTokenizer lineTokenizer = new DelimitedLineTokenizer();
+        lineTokenizer.setNames("id", "firstName", "lastName", "birthdate");
+
+        DefaultLineMapper<Customer> lineMapper = new DefaultLineMapper<>();
+        lineMapper.setLineTokenizer(lineTokenizer);
+        lineMapper.setFieldSetMapper(new CustomerFieldSetMapper());
+
+        FileRangeItemReader<Customer> fileRangeItemReader = new FileRangeItemReader<>();
+        fileRangeItemReader.setPath(Paths.get(input));
+        fileRangeItemReader.setStartOffset(startOffset);
+        fileRangeItemReader.setEndOffset(endOffset);
+        fileRangeItemReader.setLinesToSkip(1);
+        fileRangeItemReader.setLineMapper(lineMapper);
+        return fileRangeItemReader;
+    }
+
+    @Bean
+    public JdbcBatchItemWriter<Customer> customerTableItemWriter() {
+        return new CompiledJdbcBatchItemWriterBuilder<>(Customer.class).
+                dataSource(dataSource).
+                sql("INSERT INTO CUSTOMER VALUES (:id, :firstName, :lastName, :birthdate)").
+                build();
+    }
+}
@@ -1,27 +1,56 @@
 package io.spring.batch.configuration;
 
+import io.spring.batch.domain.AdaptiveCompletionPolicy;
+import io.spring.batch.domain.AdaptivePagingItemReader;
+import io.spring.batch.domain.BulkLoadItemWriter;
+import io.spring.batch.domain.ByteBudgetCompletionPolicy;
 import io.spring.batch.domain.ColumnRangePartitioner;
+import io.spring.batch.domain.CompiledJdbcBatchItemWriterBuilder;
+import io.spring.batch.domain.ConcurrencyPlanner;
 import io.spring.batch.domain.Customer;
+import io.spring.batch.domain.CustomerColumnsCopyTasklet;
+import io.spring.batch.domain.CustomerColumnsItemProcessor;
+import io.spring.batch.domain.CustomerColumnsItemReader;
+import io.spring.batch.domain.CustomerColumnsItemWriter;
 import io.spring.batch.domain.CustomerRowMapper;
+import io.spring.batch.domain.CustomerSizeEstimator;
+import io.spring.batch.domain.PipelinedChunkTasklet;
+import io.spring.batch.domain.PrefetchingItemReader;
+import io.spring.batch.domain.PushdownCopyTasklet;
+import io.spring.batch.domain.QuantileColumnRangePartitioner;
+import io.spring.batch.domain.SizeTrackingItemReader;
+import io.spring.batch.domain.WorkQueuePartitionHandler;
+import org.springframework.batch.core.ChunkListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepScope;
-import org.springframework.batch.item.database.BeanPropertyItemSqlParameterSourceProvider;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.JdbcBatchItemWriter;
 import org.springframework.batch.item.database.JdbcPagingItemReader;
 import org.springframework.batch.item.database.Order;
-import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
 import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
 import org.springframework.batch.item.database.support.H2PagingQueryProvider;
+import org.springframework.batch.item.support.PassThroughItemProcessor;
+import org.springframework.batch.repeat.CompletionPolicy;
+import org.springframework.batch.repeat.policy.CompositeCompletionPolicy;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
@@ -46,28 +75,242 @@ public class LocalPartitioningJobConfiguration {
     }
 
     @Bean
-    public Step masterStep(Step slaveStep, ColumnRangePartitioner partitioner) {
+    public Step masterStep(Step slaveStep,
+                           ColumnRangePartitioner partitioner,
+                           WorkQueuePartitionHandler partitionHandler) {
         return stepBuilderFactory.get("masterStep").
                 partitioner(slaveStep.getName(), partitioner).
-                step(slaveStep).
-                gridSize(4).
-                taskExecutor(new SimpleAsyncTaskExecutor()).
+                partitionHandler(partitionHandler).
                 build();
     }
 
     @Bean
-    public Step slaveStep(JdbcPagingItemReader<Customer> pagingItemReader,
-                          JdbcBatchItemWriter<Customer> customerItemWriter) {
+    @JobScope
+    public WorkQueuePartitionHandler partitionHandler(Step slaveStep,
+                                                      ColumnRangePartitioner partitioner,
+                                                      ConcurrencyPlanner concurrencyPlanner,
+                                                      ThreadPoolTaskExecutor partitionTaskExecutor) {
+        WorkQueuePartitionHandler partitionHandler = new WorkQueuePartitionHandler();
+        partitionHandler.setStep(slaveStep);
+        partitionHandler.setGridSize(concurrencyPlanner.getGridSize(partitioner.countRows()));
+        partitionHandler.setTaskExecutor(partitionTaskExecutor);
+        return partitionHandler;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor partitionTaskExecutor(ConcurrencyPlanner concurrencyPlanner) {
+        return concurrencyPlanner.taskExecutor("partition-");
+    }
+
+    @Bean
+    public ConcurrencyPlanner concurrencyPlanner(Environment environment) {
+        ConcurrencyPlanner concurrencyPlanner = new ConcurrencyPlanner();
+        concurrencyPlanner.setDataSource(dataSource);
+        concurrencyPlanner.setTargetRowsPerPartition(50_000);
+        // the prefetching and pipelined readers query next to the chunk transaction
+        if (environment.acceptsProfiles(Profiles.of("prefetch | pipelined"))) {
+            concurrencyPlanner.setConnectionsPerWorker(2);
+        }
+        return concurrencyPlanner;
+    }
+
+    @Bean
+    @Profile("prefetch")
+    public ThreadPoolTaskExecutor prefetchTaskExecutor(ConcurrencyPlanner concurrencyPlanner) {
+        return concurrencyPlanner.taskExecutor("prefetch-");
+    }
+
+    @Bean
+    @Profile("pipelined")
+    public ThreadPoolTaskExecutor pipelineTaskExecutor(ConcurrencyPlanner concurrencyPlanner) {
+        return concurrencyPlanner.taskExecutor("pipeline-", 2);
+    }
+
+    /**
+     * The chunk oriented copy, by default in fixed chunks of 1000 read by a
+     * {@link JdbcPagingItemReader}. Each of these profiles adds one feature, so
+     * it can be measured alone or combined with the others:
+     * <ul>
+     * <li><code>adaptive-paging</code> reads through an {@link AdaptivePagingItemReader}</li>
+     * <li><code>prefetch</code> reads the pages ahead with a {@link PrefetchingItemReader}</li>
+     * <li><code>adaptive-chunk</code> sizes the chunks with an {@link AdaptiveCompletionPolicy}</li>
+     * <li><code>byte-budget</code> closes the chunks with a {@link ByteBudgetCompletionPolicy}</li>
+     * </ul>
+     */
+    @Bean
+    @Profile("!pushdown & !columnar & !pipelined")
+    public Step slaveStep(ItemStreamReader<Customer> pagingItemReader,
+                          ObjectProvider<PrefetchingItemReader<Customer>> prefetchingItemReader,
+                          ObjectProvider<SizeTrackingItemReader<Customer>> sizeTrackingItemReader,
+                          ItemWriter<Customer> customerItemWriter,
+                          ObjectProvider<AdaptiveCompletionPolicy> adaptiveCompletionPolicy,
+                          ObjectProvider<ByteBudgetCompletionPolicy> byteBudgetCompletionPolicy) {
+        List<CompletionPolicy> policies = new ArrayList<>();
+        adaptiveCompletionPolicy.ifAvailable(policies::add);
+        byteBudgetCompletionPolicy.ifAvailable(policies::add);
+
+        SimpleStepBuilder<Customer, Customer> slaveStep;
+        if (policies.isEmpty()) {
+            slaveStep = stepBuilderFactory.get("slaveStep").
+                    chunk(1000);
+        }
+        else {
+            CompositeCompletionPolicy completionPolicy = new CompositeCompletionPolicy();
+            completionPolicy.setPolicies(policies.toArray(new CompletionPolicy[0]));
+            slaveStep = stepBuilderFactory.get("slaveStep").
+                    chunk(completionPolicy);
+        }
+
+        // the size tracking reader wraps the prefetching one, which wraps the paging one
+        ItemStreamReader<Customer> reader = pagingItemReader;
+        if (prefetchingItemReader.getIfAvailable() != null) {
+            reader = prefetchingItemReader.getIfAvailable();
+        }
+        if (sizeTrackingItemReader.getIfAvailable() != null) {
+            reader = sizeTrackingItemReader.getIfAvailable();
+        }
+        slaveStep.reader(reader).
+                writer(customerItemWriter);
+        adaptiveCompletionPolicy.ifAvailable(policy -> slaveStep.listener(policy).stream(policy));
+        byteBudgetCompletionPolicy.ifAvailable(policy -> slaveStep.listener((ChunkListener) policy));
+        return slaveStep.build();
+    }
+
+    @Bean
+    @Profile("byte-budget")
+    public ByteBudgetCompletionPolicy byteBudgetCompletionPolicy() {
+        ByteBudgetCompletionPolicy byteBudgetCompletionPolicy = new ByteBudgetCompletionPolicy();
+        byteBudgetCompletionPolicy.setMaxBytes(1024 * 1024);
+        byteBudgetCompletionPolicy.setMaxItems(10_000);
+        return byteBudgetCompletionPolicy;
+    }
+
+    @Bean
+    @StepScope
+    @Profile("byte-budget")
+    public SizeTrackingItemReader<Customer> sizeTrackingItemReader(ItemStreamReader<Customer> pagingItemReader,
+                                                                   ObjectProvider<PrefetchingItemReader<Customer>> prefetchingItemReader,
+                                                                   ByteBudgetCompletionPolicy byteBudgetCompletionPolicy) {
+        SizeTrackingItemReader<Customer> sizeTrackingItemReader = new SizeTrackingItemReader<>();
+        PrefetchingItemReader<Customer> prefetchingDelegate = prefetchingItemReader.getIfAvailable();
+        sizeTrackingItemReader.setDelegate(prefetchingDelegate != null ? prefetchingDelegate : pagingItemReader);
+        sizeTrackingItemReader.setItemSizeEstimator(new CustomerSizeEstimator());
+        sizeTrackingItemReader.setCompletionPolicy(byteBudgetCompletionPolicy);
+        return sizeTrackingItemReader;
+    }
+
+    @Bean
+    @StepScope
+    @Profile("adaptive-chunk")
+    public AdaptiveCompletionPolicy adaptiveCompletionPolicy() {
+        AdaptiveCompletionPolicy adaptiveCompletionPolicy = new AdaptiveCompletionPolicy();
+        adaptiveCompletionPolicy.setChunkSize(1000);
+        adaptiveCompletionPolicy.setMinChunkSize(100);
+        adaptiveCompletionPolicy.setMaxChunkSize(10_000);
+        adaptiveCompletionPolicy.setTargetChunkMillis(500);
+        return adaptiveCompletionPolicy;
+    }
+
+    @Bean(name = "slaveStep")
+    @Profile("pushdown")
+    public Step pushdownSlaveStep(PushdownCopyTasklet pushdownCopyTasklet) {
+        return stepBuilderFactory.get("slaveStep").
+                tasklet(pushdownCopyTasklet).
+                build();
+    }
+
+    @Bean
+    @StepScope
+    public PushdownCopyTasklet pushdownCopyTasklet(@Value("#{stepExecutionContext['minValue']}") Long minValue,
+                                                   @Value("#{stepExecutionContext['maxValue']}") Long maxValue) {
+        PushdownCopyTasklet pushdownCopyTasklet = new PushdownCopyTasklet();
+        pushdownCopyTasklet.setDataSource(dataSource);
+        pushdownCopyTasklet.setSourceTable("customer");
+        pushdownCopyTasklet.setTargetTable("new_customer");
+        pushdownCopyTasklet.setColumns("id, firstName, lastName, birthdate");
+        pushdownCopyTasklet.setKeyColumn("id");
+        pushdownCopyTasklet.setMinValue(minValue);
+        pushdownCopyTasklet.setMaxValue(maxValue);
+        return pushdownCopyTasklet;
+    }
+
+    @Bean(name = "slaveStep")
+    @Profile("columnar")
+    public Step columnarSlaveStep(CustomerColumnsCopyTasklet customerColumnsCopyTasklet,
+                                  CustomerColumnsItemReader customerColumnsItemReader) {
+        return stepBuilderFactory.get("slaveStep").
+                tasklet(customerColumnsCopyTasklet).
+                stream(customerColumnsItemReader).
+                build();
+    }
+
+    @Bean
+    @Profile("columnar")
+    public CustomerColumnsCopyTasklet customerColumnsCopyTasklet(CustomerColumnsItemReader customerColumnsItemReader,
+                                                                 CustomerColumnsItemProcessor customerColumnsItemProcessor,
+                                                                 CustomerColumnsItemWriter customerColumnsItemWriter) {
+        CustomerColumnsCopyTasklet customerColumnsCopyTasklet = new CustomerColumnsCopyTasklet();
+        customerColumnsCopyTasklet.setItemReader(customerColumnsItemReader);
+        customerColumnsCopyTasklet.setItemProcessor(customerColumnsItemProcessor);
+        customerColumnsCopyTasklet.setItemWriter(customerColumnsItemWriter);
+        return customerColumnsCopyTasklet;
+    }
+
+    @Bean
+    @Profile("columnar")
+    public CustomerColumnsItemProcessor customerColumnsItemProcessor() {
+        // the copy changes nothing: a job transforming customers plugs its processor in here
+        return new CustomerColumnsItemProcessor(new PassThroughItemProcessor<>());
+    }
+
+    @Bean
+    @Profile("columnar")
+    @StepScope
+    public CustomerColumnsItemReader customerColumnsItemReader(@Value("#{stepExecutionContext['minValue']}") Long minValue,
+                                                               @Value("#{stepExecutionContext['maxValue']}") Long maxValue) {
+        CustomerColumnsItemReader customerColumnsItemReader = new CustomerColumnsItemReader();
+        customerColumnsItemReader.setDataSource(dataSource);
+        customerColumnsItemReader.setTable("customer");
+        customerColumnsItemReader.setMinValue(minValue);
+        customerColumnsItemReader.setMaxValue(maxValue);
+        customerColumnsItemReader.setBlockSize(1000);
+        return customerColumnsItemReader;
+    }
+
+    @Bean
+    @Profile("columnar")
+    public CustomerColumnsItemWriter customerColumnsItemWriter() {
+        CustomerColumnsItemWriter customerColumnsItemWriter = new CustomerColumnsItemWriter();
+        customerColumnsItemWriter.setDataSource(dataSource);
+        customerColumnsItemWriter.setSql("INSERT INTO NEW_CUSTOMER VALUES (?, ?, ?, ?)");
+        return customerColumnsItemWriter;
+    }
+
+    @Bean(name = "slaveStep")
+    @Profile("pipelined")
+    public Step pipelinedSlaveStep(PipelinedChunkTasklet<Customer, Customer> pipelinedChunkTasklet) {
         return stepBuilderFactory.get("slaveStep").
-                <Customer, Customer>chunk(1000).
-                reader(pagingItemReader).
-                writer(customerItemWriter).
+                tasklet(pipelinedChunkTasklet).
+                stream(pipelinedChunkTasklet).
                 build();
     }
 
+    @Bean
+    @StepScope
+    public PipelinedChunkTasklet<Customer, Customer> pipelinedChunkTasklet(ItemStreamReader<Customer> pagingItemReader,
+                                                                           ItemWriter<Customer> customerItemWriter,
+                                                                           ThreadPoolTaskExecutor pipelineTaskExecutor) {
+        PipelinedChunkTasklet<Customer, Customer> pipelinedChunkTasklet = new PipelinedChunkTasklet<>();
+        pipelinedChunkTasklet.setItemReader(pagingItemReader);
+        pipelinedChunkTasklet.setItemWriter(customerItemWriter);
+        pipelinedChunkTasklet.setChunkSize(1000);
+        pipelinedChunkTasklet.setTaskExecutor(pipelineTaskExecutor);
+        return pipelinedChunkTasklet;
+    }
+
     @Bean
     public ColumnRangePartitioner partitioner() {
-        ColumnRangePartitioner columnRangePartitioner = new ColumnRangePartitioner();
+        ColumnRangePartitioner columnRangePartitioner = new QuantileColumnRangePartitioner();
         columnRangePartitioner.setColumn("id");
         columnRangePartitioner.setDataSource(dataSource);
         columnRangePartitioner.setTable("customer");
@@ -76,35 +319,89 @@ public class LocalPartitioningJobConfiguration {
 
     @Bean
     @StepScope
+    @Profile("prefetch")
+    public PrefetchingItemReader<Customer> prefetchingItemReader(ItemStreamReader<Customer> pagingItemReader,
+                                                                 ThreadPoolTaskExecutor prefetchTaskExecutor) {
+        PrefetchingItemReader<Customer> prefetchingItemReader = new PrefetchingItemReader<>();
+        prefetchingItemReader.setDelegate(pagingItemReader);
+        prefetchingItemReader.setPageSize(1000);
+        prefetchingItemReader.setMaxPages(2);
+        prefetchingItemReader.setMaxBytes(16 * 1024 * 1024);
+        prefetchingItemReader.setItemSizeEstimator(new CustomerSizeEstimator());
+        prefetchingItemReader.setTaskExecutor(prefetchTaskExecutor);
+        return prefetchingItemReader;
+    }
+
+    @Bean
+    @StepScope
+    @Profile("!adaptive-paging")
     public JdbcPagingItemReader<Customer> pagingItemReader(@Value("#{stepExecutionContext['minValue']}") Long minValue,
                                                            @Value("#{stepExecutionContext['maxValue']}") Long maxValue) {
         System.out.println("reading " + minValue + " to " + maxValue);
+
+        return new JdbcPagingItemReaderBuilder<Customer>().
+                name("pagingItemReader").
+                dataSource(dataSource).
+                fetchSize(1000).
+                pageSize(1000).
+                rowMapper(new CustomerRowMapper()).
+                queryProvider(customerQueryProvider(minValue, maxValue)).
+                build();
+    }
+
+    @Bean(name = "pagingItemReader")
+    @StepScope
+    @Profile("adaptive-paging")
+    public AdaptivePagingItemReader<Customer> adaptivePagingItemReader(@Value("#{stepExecutionContext['minValue']}") Long minValue,
+                                                                       @Value("#{stepExecutionContext['maxValue']}") Long maxValue) {
+        System.out.println("reading " + minValue + " to " + maxValue);
+
+        AdaptivePagingItemReader<Customer> pagingItemReader = new AdaptivePagingItemReader<>();
+        pagingItemReader.setName("pagingItemReader");
+        pagingItemReader.setDataSource(dataSource);
+        pagingItemReader.setFetchSize(1000);
+        pagingItemReader.setPageSize(1000);
+        pagingItemReader.setMaxPageBytes(16 * 1024 * 1024);
+        pagingItemReader.setItemSizeEstimator(new CustomerSizeEstimator());
+        pagingItemReader.setRowMapper(new CustomerRowMapper());
+        pagingItemReader.setQueryProvider(customerQueryProvider(minValue, maxValue));
+        return pagingItemReader;
+    }
+
+    private H2PagingQueryProvider customerQueryProvider(Long minValue, Long maxValue) {
         H2PagingQueryProvider queryProvider = new H2PagingQueryProvider();
         queryProvider.setSelectClause("id, firstName, lastName, birthdate");
         queryProvider.setFromClause("from customer");
-        queryProvider.setWhereClause("where id >= " + minValue + " and id < " + maxValue);
+        queryProvider.setWhereClause("where id >= " + minValue + " and id <= " + maxValue);
 
         Map<String, Order> sortKeys = new HashMap<>(1);
 
         sortKeys.put("id", Order.ASCENDING);
 
         queryProvider.setSortKeys(sortKeys);
-
-        return new JdbcPagingItemReaderBuilder<Customer>().
-                dataSource(dataSource).
-                fetchSize(1000).
-                rowMapper(new CustomerRowMapper()).
-                queryProvider(queryProvider).
-                saveState(false).
-                build();
+        return queryProvider;
     }
 
     @Bean
+    @Profile("!bulkload")
     public JdbcBatchItemWriter<Customer> customerItemWriter() {
-        return new JdbcBatchItemWriterBuilder<Customer>().
+        return new CompiledJdbcBatchItemWriterBuilder<>(Customer.class).
                 dataSource(dataSource).
                 sql("INSERT INTO NEW_CUSTOMER VALUES (:id, :firstName, :lastName, :birthdate)").
-                itemSqlParameterSourceProvider(new BeanPropertyItemSqlParameterSourceProvider<>()).
                 build();
     }
+
+    @Bean(name = "customerItemWriter")
+    @Profile("bulkload")
+    public BulkLoadItemWriter<Customer> bulkLoadItemWriter() {
+        BulkLoadItemWriter<Customer> customerItemWriter = new BulkLoadItemWriter<>();
+        customerItemWriter.setDataSource(dataSource);
+        customerItemWriter.setTable("new_customer");
+        customerItemWriter.setColumns("id, firstName, lastName, birthdate");
+        customerItemWriter.setFieldExtractor(customer -> new Object[]{customer.getId(),
+                customer.getFirstName(),
+                customer.getLastName(),
+                customer.getBirthdate()});
+        return customerItemWriter;
+    }
 }
@@ -0,0 +1,176 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.repeat.CompletionPolicy;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+import org.springframework.batch.repeat.policy.CompletionPolicySupport;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.util.Assert;
+
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+
+/**
+ * {@link CompletionPolicy} of a chunk oriented step whose chunk size is adjusted
+ * after each chunk so chunks take about {@link #setTargetChunkMillis(long)
+ * targetChunkMillis}, from reading their first item to their commit. The next
+ * size is the number of items that would have taken that long at the pace of
+ * the last chunk, at most twice and at least half the last size, within
+ * {@link #setMinChunkSize(int) minChunkSize} and
+ * {@link #setMaxChunkSize(int) maxChunkSize}.
+ * <p>
+ * A rolled back chunk halves the size, and a rollback caused by a lock or a
+ * query timeout quarters it. The size of the last committed chunk is saved in
+ * the execution context under <code>&lt;name&gt;.chunk.size</code>, as is the
+ * size backed off to when the step fails, so a restarted step starts with it.
+ * <p>
+ * The policy must be registered as the completion policy, a listener and a
+ * stream of its step, and be step scoped when the step is partitioned: it
+ * keeps the state of a single step execution.
+ */
+public class AdaptiveCompletionPolicy extends CompletionPolicySupport implements ChunkListener, ItemStream {
+
+    private long targetChunkMillis = 1000;
+
+    private int initialChunkSize = 1000;
+
+    private int minChunkSize = 10;
+
+    private int maxChunkSize = 10_000;
+
+    private String name = "adaptiveCompletionPolicy";
+
+    private volatile int chunkSize;
+
+    private long chunkStart;
+
+    private int readCountBefore;
+
+    /**
+     * The time a chunk should take, commit included. Defaults to 1 s.
+     *
+     * @param targetChunkMillis the target duration of a chunk in milliseconds
+     */
+    public void setTargetChunkMillis(long targetChunkMillis) {
+        this.targetChunkMillis = targetChunkMillis;
+    }
+
+    /**
+     * The size of the first chunk, unless restarted. Defaults to 1000.
+     *
+     * @param chunkSize the initial number of items per chunk
+     */
+    public void setChunkSize(int chunkSize) {
+        this.initialChunkSize = chunkSize;
+    }
+
+    /**
+     * The smallest chunk size. Defaults to 10.
+     *
+     * @param minChunkSize the minimum number of items per chunk
+     */
+    public void setMinChunkSize(int minChunkSize) {
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * The largest chunk size. Defaults to 10 000.
+     *
+     * @param maxChunkSize the maximum number of items per chunk
+     */
+    public void setMaxChunkSize(int maxChunkSize) {
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    /**
+     * The prefix of the keys in the execution context.
+     *
+     * @param name the name of the policy
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        Assert.isTrue(0 < minChunkSize && minChunkSize <= initialChunkSize && initialChunkSize <= maxChunkSize,
+                "The chunk sizes must be positive, and the initial one between the minimum and the maximum");
+        Assert.isTrue(targetChunkMillis > 0, "The target chunk duration must be positive");
+
+        chunkSize = executionContext.getInt(name + ".chunk.size", initialChunkSize);
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context) {
+        return context.getStartedCount() >= chunkSize;
+    }
+
+    @Override
+    public void update(RepeatContext context) {
+        ((RepeatContextSupport) context).increment();
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        chunkStart = System.nanoTime();
+        readCountBefore = context.getStepContext().getStepExecution().getReadCount();
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        long nanos = System.nanoTime() - chunkStart;
+        int items = context.getStepContext().getStepExecution().getReadCount() - readCountBefore;
+        if (items == 0) {
+            return;
+        }
+
+        double nanosPerItem = (double) nanos / items;
+        long size = Math.round(targetChunkMillis * 1_000_000 / nanosPerItem);
+        size = Math.max(chunkSize / 2, Math.min((long) chunkSize * 2, size));
+        chunkSize = (int) Math.max(minChunkSize, Math.min(maxChunkSize, size));
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        Throwable cause = (Throwable) context.getAttribute(ChunkListener.ROLLBACK_EXCEPTION_KEY);
+        chunkSize = Math.max(minChunkSize, chunkSize / (isTimeout(cause) ? 4 : 2));
+
+        // saved with the failed step execution, update() is not called on rollback
+        StepExecution stepExecution = context.getStepContext().getStepExecution();
+        stepExecution.getExecutionContext().putInt(name + ".chunk.size", chunkSize);
+    }
+
+    private boolean isTimeout(Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof PessimisticLockingFailureException || t instanceof QueryTimeoutException ||
+                    t instanceof SQLTimeoutException || t instanceof SQLTransactionRollbackException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        // the size of the chunk committed with this update
+        executionContext.putInt(name + ".chunk.size", chunkSize);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+    }
+
+    /**
+     * @return the size of the next chunk
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+}
@@ -0,0 +1,460 @@
+package io.spring.batch.domain;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.database.PagingQueryProvider;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paging reader, like <code>JdbcPagingItemReader</code>, whose page size adapts
+ * to the database instead of being fixed. Pages are read by key, after the sort
+ * key values of the last row, with the queries of a {@link PagingQueryProvider}.
+ * <p>
+ * The first page has {@link #setPageSize(int) pageSize} rows, best the commit
+ * interval of the step. The page size then doubles as long as the time per row
+ * of a full page improves by 5% or more, and settles on the best size once it
+ * does not.
+ * When a page takes more than {@link #setMaxPageMillis(long) maxPageMillis}, or
+ * more than {@link #setMaxPageBytes(long) maxPageBytes} as estimated by the
+ * {@link #setItemSizeEstimator(ItemSizeEstimator) estimator}, the page size is
+ * halved, within {@link #setMinPageSize(int) minPageSize} and
+ * {@link #setMaxPageSize(int) maxPageSize}. From then on the page size only
+ * doubles when the page twice as large is expected to fit the budgets, and grows
+ * again as on the first pages whenever the time per row is 5% better than on the
+ * page that was too slow, or than at the size it last settled on.
+ * <p>
+ * The page size in use is saved in the execution context under
+ * <code>&lt;name&gt;.page.size</code> and restored on restart, along with the
+ * sort key values of the last item read. Each page is recorded in the
+ * <code>batch.paging.page</code> timer and the
+ * <code>batch.paging.page.size</code> distribution summary, tagged with the
+ * name of the reader and the name of its step, the partitions of a step sharing
+ * its meters, in {@link Metrics#globalRegistry} unless another registry is set.
+ * <p>
+ * A {@link PrefetchingItemReader} decorating this reader prefetches its pages
+ * as they are sized here.
+ *
+ * @param <T> the type of the items
+ */
+public class AdaptivePagingItemReader<T> extends AbstractItemCountingItemStreamItemReader<T> implements InitializingBean {
+
+    private static final double IMPROVEMENT = 0.95;
+
+    private DataSource dataSource;
+
+    private PagingQueryProvider queryProvider;
+
+    private RowMapper<T> rowMapper;
+
+    private int fetchSize = 1000;
+
+    private int initialPageSize = 1000;
+
+    private int minPageSize = 100;
+
+    private int maxPageSize = 10_000;
+
+    private long maxPageMillis = 1000;
+
+    private long maxPageBytes = -1;
+
+    private ItemSizeEstimator<? super T> itemSizeEstimator;
+
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private List<String> sortKeys;
+
+    private final Map<Integer, String> firstPageQueries = new HashMap<>();
+
+    private final Map<Integer, String> remainingPagesQueries = new HashMap<>();
+
+    private final List<T> results = new ArrayList<>();
+
+    private final List<Object[]> resultKeys = new ArrayList<>();
+
+    private int current;
+
+    private boolean lastPage;
+
+    private Object[] startAfter;
+
+    private int pageSize;
+
+    private boolean growing;
+
+    private int bestPageSize;
+
+    private double bestNanosPerRow;
+
+    private boolean shrunk;
+
+    private double recoveryNanosPerRow;
+
+    private Timer pageTimer;
+
+    private DistributionSummary pageSizes;
+
+    private String name;
+
+    public AdaptivePagingItemReader() {
+        setName("adaptivePagingItemReader");
+    }
+
+    /**
+     * The prefix of the keys in the execution context, and the value of the
+     * <code>name</code> tag of the meters.
+     *
+     * @param name the name of the reader
+     */
+    @Override
+    public void setName(String name) {
+        super.setName(name);
+        this.name = name;
+    }
+
+    /**
+     * The data source to read from.
+     *
+     * @param dataSource a {@link DataSource}
+     */
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Generates the queries of the pages, without named parameters.
+     *
+     * @param queryProvider a {@link PagingQueryProvider}
+     */
+    public void setQueryProvider(PagingQueryProvider queryProvider) {
+        this.queryProvider = queryProvider;
+    }
+
+    /**
+     * Maps the rows to items.
+     *
+     * @param rowMapper a {@link RowMapper}
+     */
+    public void setRowMapper(RowMapper<T> rowMapper) {
+        this.rowMapper = rowMapper;
+    }
+
+    /**
+     * The JDBC fetch size hint. Defaults to 1000.
+     *
+     * @param fetchSize the fetch size
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * The size of the first page. Defaults to 1000.
+     *
+     * @param pageSize the initial number of rows per page
+     */
+    public void setPageSize(int pageSize) {
+        this.initialPageSize = pageSize;
+    }
+
+    /**
+     * The smallest page size. Defaults to 100.
+     *
+     * @param minPageSize the minimum number of rows per page
+     */
+    public void setMinPageSize(int minPageSize) {
+        this.minPageSize = minPageSize;
+    }
+
+    /**
+     * The largest page size. Defaults to 10 000.
+     *
+     * @param maxPageSize the maximum number of rows per page
+     */
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * The time a page query may take before the page size is halved. Defaults
+     * to 1 s.
+     *
+     * @param maxPageMillis the latency budget of a page in milliseconds
+     */
+    public void setMaxPageMillis(long maxPageMillis) {
+        this.maxPageMillis = maxPageMillis;
+    }
+
+    /**
+     * The estimated size a page may take before the page size is halved.
+     * Defaults to none.
+     *
+     * @param maxPageBytes the memory budget of a page in bytes
+     */
+    public void setMaxPageBytes(long maxPageBytes) {
+        this.maxPageBytes = maxPageBytes;
+    }
+
+    /**
+     * Estimates the size of the items, for the memory budget.
+     *
+     * @param itemSizeEstimator an {@link ItemSizeEstimator}
+     */
+    public void setItemSizeEstimator(ItemSizeEstimator<? super T> itemSizeEstimator) {
+        this.itemSizeEstimator = itemSizeEstimator;
+    }
+
+    /**
+     * The registry of the meters. Defaults to {@link Metrics#globalRegistry}.
+     *
+     * @param meterRegistry a {@link MeterRegistry}
+     */
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(dataSource, "A DataSource is required");
+        Assert.notNull(queryProvider, "A PagingQueryProvider is required");
+        Assert.notNull(rowMapper, "A RowMapper is required");
+        Assert.isTrue(0 < minPageSize && minPageSize <= initialPageSize && initialPageSize <= maxPageSize,
+                "The page sizes must be positive, and the initial one between the minimum and the maximum");
+        Assert.isTrue(maxPageBytes <= 0 || itemSizeEstimator != null,
+                "An ItemSizeEstimator is required for a memory budget");
+
+        queryProvider.init(dataSource);
+        Assert.isTrue(!queryProvider.isUsingNamedParameters(), "Named parameters are not supported");
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        sortKeys = new ArrayList<>(queryProvider.getSortKeysWithoutAliases().keySet());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        pageSize = initialPageSize;
+        growing = true;
+        bestPageSize = initialPageSize;
+        bestNanosPerRow = 0;
+        shrunk = false;
+        startAfter = null;
+
+        if (isSaveState() && executionContext.containsKey(getExecutionContextKey("page.size"))) {
+            pageSize = executionContext.getInt(getExecutionContextKey("page.size"));
+            growing = false;
+
+            Map<String, Object> startAfterValues =
+                    (Map<String, Object>) executionContext.get(getExecutionContextKey("start.after"));
+            if (startAfterValues != null) {
+                startAfter = new Object[sortKeys.size()];
+                for (int i = 0; i < startAfter.length; i++) {
+                    startAfter[i] = startAfterValues.get(sortKeys.get(i));
+                }
+            }
+        }
+
+        super.open(executionContext);
+    }
+
+    @Override
+    protected void doOpen() {
+        Tags tags = meterTags();
+        pageTimer = Timer.builder("batch.paging.page").
+                tags(tags).
+                description("Page queries of adaptive paging readers").
+                register(meterRegistry);
+        pageSizes = DistributionSummary.builder("batch.paging.page.size").
+                tags(tags).
+                description("Page sizes chosen by adaptive paging readers").
+                register(meterRegistry);
+
+        results.clear();
+        resultKeys.clear();
+        current = 0;
+        lastPage = false;
+    }
+
+    /**
+     * @return the name of the reader and of the step opening it, without the
+     * partition of partition steps, named <code>&lt;step&gt;:&lt;partition&gt;</code>,
+     * so the number of meters does not grow with the grid size
+     */
+    private Tags meterTags() {
+        StepContext stepContext = StepSynchronizationManager.getContext();
+        String stepName = stepContext != null ? stepContext.getStepName() : "none";
+        int separator = stepName.indexOf(':');
+
+        return Tags.of("name", name, "step", separator < 0 ? stepName : stepName.substring(0, separator));
+    }
+
+    @Override
+    protected T doRead() {
+        if (current >= results.size()) {
+            if (lastPage) {
+                return null;
+            }
+            readPage();
+            if (results.isEmpty()) {
+                return null;
+            }
+        }
+
+        startAfter = resultKeys.get(current);
+        return results.get(current++);
+    }
+
+    private void readPage() {
+        int size = pageSize;
+        String sql = startAfter == null ?
+                firstPageQueries.computeIfAbsent(size, queryProvider::generateFirstPageQuery) :
+                remainingPagesQueries.computeIfAbsent(size, queryProvider::generateRemainingPagesQuery);
+
+        results.clear();
+        resultKeys.clear();
+        current = 0;
+
+        long start = System.nanoTime();
+        jdbcTemplate.query(sql, rs -> {
+            results.add(rowMapper.mapRow(rs, results.size()));
+            Object[] keys = new Object[sortKeys.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = rs.getObject(sortKeys.get(i));
+            }
+            resultKeys.add(keys);
+        }, parameters());
+        long nanos = System.nanoTime() - start;
+
+        lastPage = results.size() < size;
+        pageTimer.record(nanos, TimeUnit.NANOSECONDS);
+        pageSizes.record(size);
+        if (!lastPage) {
+            adapt(size, nanos);
+        }
+    }
+
+    /**
+     * @return the sort key values to start after, as expected by the remaining
+     * pages query: the first key, then the first two, and so on
+     */
+    private Object[] parameters() {
+        List<Object> parameters = new ArrayList<>();
+        if (startAfter != null) {
+            for (int i = 0; i < startAfter.length; i++) {
+                for (int j = 0; j <= i; j++) {
+                    parameters.add(startAfter[j]);
+                }
+            }
+        }
+        return parameters.toArray();
+    }
+
+    private void adapt(int size, long nanos) {
+        long bytes = 0;
+        if (maxPageBytes > 0) {
+            for (T item : results) {
+                bytes += itemSizeEstimator.estimateSize(item);
+            }
+        }
+
+        double nanosPerRow = (double) nanos / size;
+        boolean tooSlow = nanos > TimeUnit.MILLISECONDS.toNanos(maxPageMillis);
+        if (tooSlow || (maxPageBytes > 0 && bytes > maxPageBytes)) {
+            pageSize = Math.max(minPageSize, size / 2);
+            growing = false;
+            shrunk = true;
+            // a page too large for the memory budget only needs the doubled page to fit again
+            recoveryNanosPerRow = tooSlow ? nanosPerRow * IMPROVEMENT : Double.MAX_VALUE;
+            return;
+        }
+
+        // after a shrink, only grow to pages expected to fit the budgets
+        int doubled = Math.min(maxPageSize, size * 2);
+        boolean canDouble = doubled > size && (!shrunk || fitsBudgets(doubled, nanosPerRow, (double) bytes / size));
+
+        if (!growing && shrunk && nanosPerRow < recoveryNanosPerRow && canDouble) {
+            growing = true;
+            bestNanosPerRow = 0;
+        }
+
+        if (growing) {
+            if (bestNanosPerRow == 0 || nanosPerRow < bestNanosPerRow * IMPROVEMENT) {
+                bestNanosPerRow = nanosPerRow;
+                bestPageSize = size;
+                pageSize = canDouble ? doubled : size;
+                growing = canDouble;
+            }
+            else {
+                pageSize = bestPageSize;
+                growing = false;
+            }
+
+            if (!growing) {
+                recoveryNanosPerRow = bestNanosPerRow * IMPROVEMENT;
+            }
+        }
+    }
+
+    private boolean fitsBudgets(int size, double nanosPerRow, double bytesPerRow) {
+        return size * nanosPerRow <= TimeUnit.MILLISECONDS.toNanos(maxPageMillis) &&
+                (maxPageBytes <= 0 || size * bytesPerRow <= maxPageBytes);
+    }
+
+    @Override
+    protected void jumpToItem(int itemIndex) throws Exception {
+        // reading starts after the saved sort key values, not from the start
+        if (startAfter == null) {
+            super.jumpToItem(itemIndex);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        super.update(executionContext);
+        if (isSaveState()) {
+            executionContext.putInt(getExecutionContextKey("page.size"), pageSize);
+            if (startAfter != null) {
+                Map<String, Object> startAfterValues = new LinkedHashMap<>();
+                for (int i = 0; i < startAfter.length; i++) {
+                    startAfterValues.put(sortKeys.get(i), startAfter[i]);
+                }
+                executionContext.put(getExecutionContextKey("start.after"), startAfterValues);
+            }
+        }
+    }
+
+    @Override
+    protected void doClose() {
+        results.clear();
+        resultKeys.clear();
+    }
+
+    /**
+     * @return the page size of the next page
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+}
@@ -0,0 +1,66 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Splits a file in the {@link BinaryCustomerFormat} into ranges of consecutive
+ * blocks holding about the same number of records, using the block index of the
+ * file. Each partition gets <code>firstBlock</code> and <code>lastBlock</code>
+ * (inclusive) for a {@link BinaryCustomerItemReader}, and its number of records
+ * as <code>partitionSize</code>.
+ */
+public class BinaryCustomerFilePartitioner implements Partitioner {
+
+    private Path path;
+
+    /**
+     * The file to split.
+     *
+     * @param path the input file
+     */
+    public void setPath(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        BinaryCustomerFormat.Index index;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            index = BinaryCustomerFormat.readIndex(channel);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the index of " + path, e);
+        }
+
+        long targetSize = index.getRecordCount() / gridSize + 1;
+
+        Map<String, ExecutionContext> result = new HashMap<>();
+        int firstBlock = 0;
+        long partitionSize = 0;
+        for (int block = 0; block < index.getBlockCount(); block++) {
+            partitionSize += index.getRecordCount(block);
+
+            if (partitionSize >= targetSize || block == index.getBlockCount() - 1) {
+                ExecutionContext value = new ExecutionContext();
+                value.putInt("firstBlock", firstBlock);
+                value.putInt("lastBlock", block);
+                value.putLong("partitionSize", partitionSize);
+                result.put("partition" + result.size(), value);
+
+                firstBlock = block + 1;
+                partitionSize = 0;
+            }
+        }
+
+        return result;
+    }
+}
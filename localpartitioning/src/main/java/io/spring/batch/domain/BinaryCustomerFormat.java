@@ -0,0 +1,197 @@
+package io.spring.batch.domain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * The layout of binary customer files, written by
+ * {@link BinaryCustomerItemWriter} and read by {@link BinaryCustomerItemReader}.
+ * All fixed size numbers are big-endian.
+ * <pre>
+ * file    = header block* index trailer
+ * header  = "CUSTBIN1"
+ * block   = recordCount:int32 length:int32 record{recordCount}   (length counts the records' bytes)
+ * record  = length:varint id:zigzag-varint firstName:string lastName:string birthdate
+ * string  = 0:varint                                              (null)
+ *         | (byteLength + 1):varint utf8-bytes
+ * birthdate = 0:byte | 1:byte epochMillis:zigzag-varint           (the local date time taken as UTC)
+ * index   = (blockOffset:int64 recordCount:int32 length:int32){blockCount}
+ * trailer = indexOffset:int64 blockCount:int32 "CUSTIDX1"
+ * </pre>
+ * The record length lets a reader skip a record without decoding it. The index
+ * lets a file be split into ranges of blocks read independently; a file without
+ * its index, cut short by a failure, can still be indexed by walking the block
+ * headers.
+ */
+public final class BinaryCustomerFormat {
+
+    static final byte[] MAGIC = {'C', 'U', 'S', 'T', 'B', 'I', 'N', '1'};
+
+    static final byte[] INDEX_MAGIC = {'C', 'U', 'S', 'T', 'I', 'D', 'X', '1'};
+
+    static final int BLOCK_HEADER_SIZE = 8;
+
+    static final int INDEX_ENTRY_SIZE = 16;
+
+    static final int TRAILER_SIZE = 20;
+
+    private BinaryCustomerFormat() {
+    }
+
+    /**
+     * The blocks of a file: their offset, number of records and length in bytes
+     * (without the block header).
+     */
+    public static final class Index {
+
+        private long[] offsets = new long[64];
+
+        private int[] recordCounts = new int[64];
+
+        private int[] lengths = new int[64];
+
+        private int blockCount;
+
+        void add(long offset, int recordCount, int length) {
+            if (blockCount == offsets.length) {
+                offsets = Arrays.copyOf(offsets, blockCount * 2);
+                recordCounts = Arrays.copyOf(recordCounts, blockCount * 2);
+                lengths = Arrays.copyOf(lengths, blockCount * 2);
+            }
+            offsets[blockCount] = offset;
+            recordCounts[blockCount] = recordCount;
+            lengths[blockCount] = length;
+            blockCount++;
+        }
+
+        public int getBlockCount() {
+            return blockCount;
+        }
+
+        public long getOffset(int block) {
+            return offsets[block];
+        }
+
+        public int getRecordCount(int block) {
+            return recordCounts[block];
+        }
+
+        public int getLength(int block) {
+            return lengths[block];
+        }
+
+        public long getRecordCount() {
+            long count = 0;
+            for (int block = 0; block < blockCount; block++) {
+                count += recordCounts[block];
+            }
+            return count;
+        }
+
+        void writeTo(FileChannel channel) throws IOException {
+            long indexOffset = channel.position();
+            ByteBuffer buffer = ByteBuffer.allocate(blockCount * INDEX_ENTRY_SIZE + TRAILER_SIZE).order(ByteOrder.BIG_ENDIAN);
+            for (int block = 0; block < blockCount; block++) {
+                buffer.putLong(offsets[block]).putInt(recordCounts[block]).putInt(lengths[block]);
+            }
+            buffer.putLong(indexOffset).putInt(blockCount).put(INDEX_MAGIC);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads the index at the end of a complete file.
+     *
+     * @param channel the file
+     * @return the {@link Index} of the file
+     * @throws IOException if the file cannot be read or is not a complete binary
+     * customer file
+     */
+    public static Index readIndex(FileChannel channel) throws IOException {
+        checkHeader(channel);
+
+        long size = channel.size();
+        if (size < MAGIC.length + TRAILER_SIZE) {
+            throw new IOException("Not a complete binary customer file, it has no index");
+        }
+
+        ByteBuffer trailer = read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+        long indexOffset = trailer.getLong();
+        int blockCount = trailer.getInt();
+        byte[] magic = new byte[INDEX_MAGIC.length];
+        trailer.get(magic);
+        if (!Arrays.equals(magic, INDEX_MAGIC) || indexOffset + (long) blockCount * INDEX_ENTRY_SIZE != size - TRAILER_SIZE) {
+            throw new IOException("Not a complete binary customer file, it has no index");
+        }
+
+        Index index = new Index();
+        ByteBuffer entries = read(channel, indexOffset, blockCount * INDEX_ENTRY_SIZE);
+        for (int block = 0; block < blockCount; block++) {
+            index.add(entries.getLong(), entries.getInt(), entries.getInt());
+        }
+        return index;
+    }
+
+    /**
+     * Indexes the blocks of a file up to a position by walking the block headers,
+     * for a file whose index has not been written.
+     *
+     * @param channel the file
+     * @param end the position after the last block
+     * @return the {@link Index} of the blocks before <code>end</code>
+     * @throws IOException if the file cannot be read
+     */
+    public static Index scanIndex(FileChannel channel, long end) throws IOException {
+        checkHeader(channel);
+
+        Index index = new Index();
+        long offset = MAGIC.length;
+        while (offset < end) {
+            ByteBuffer header = read(channel, offset, BLOCK_HEADER_SIZE);
+            int recordCount = header.getInt();
+            int length = header.getInt();
+            index.add(offset, recordCount, length);
+            offset += BLOCK_HEADER_SIZE + length;
+        }
+        if (offset != end) {
+            throw new IOException("The last block ends at " + offset + ", not at " + end);
+        }
+        return index;
+    }
+
+    private static void checkHeader(FileChannel channel) throws IOException {
+        if (channel.size() < MAGIC.length) {
+            throw new IOException("Not a binary customer file");
+        }
+        byte[] magic = new byte[MAGIC.length];
+        read(channel, 0, MAGIC.length).get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a binary customer file");
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file at " + (position + buffer.position()));
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,197 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Reads customers from a file in the {@link BinaryCustomerFormat}, all of it or
+ * the range of blocks given by {@link #setFirstBlock(Integer)} and
+ * {@link #setLastBlock(Integer)}, as assigned by a
+ * {@link BinaryCustomerFilePartitioner}. The blocks are read through
+ * memory-mapped windows of the file, so records are decoded straight from the
+ * page cache.
+ * <p>
+ * On restart, whole blocks are skipped using the record counts of the index and
+ * records within a block using their length, without decoding them.
+ */
+public class BinaryCustomerItemReader extends AbstractItemCountingItemStreamItemReader<Customer> {
+
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private Path path;
+
+    private Integer firstBlock;
+
+    private Integer lastBlock;
+
+    private FileChannel channel;
+
+    private BinaryCustomerFormat.Index index;
+
+    private int nextBlock;
+
+    private int end;
+
+    private long rangeEnd;
+
+    private MappedByteBuffer window;
+
+    private long windowStart;
+
+    private int recordsLeft;
+
+    private byte[] scratch = new byte[256];
+
+    public BinaryCustomerItemReader() {
+        setName("binaryCustomerItemReader");
+    }
+
+    /**
+     * The file to read.
+     *
+     * @param path the input file
+     */
+    public void setPath(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * The first block to read. Defaults to the first block of the file.
+     *
+     * @param firstBlock the index of the first block
+     */
+    public void setFirstBlock(Integer firstBlock) {
+        this.firstBlock = firstBlock;
+    }
+
+    /**
+     * The last block to read, inclusive. Defaults to the last block of the file.
+     *
+     * @param lastBlock the index of the last block
+     */
+    public void setLastBlock(Integer lastBlock) {
+        this.lastBlock = lastBlock;
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        Assert.notNull(path, "A path is required");
+
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        index = BinaryCustomerFormat.readIndex(channel);
+
+        nextBlock = firstBlock != null ? firstBlock : 0;
+        end = lastBlock != null ? lastBlock + 1 : index.getBlockCount();
+        Assert.state(nextBlock >= 0 && end <= index.getBlockCount(), "Blocks " + nextBlock + " to " + (end - 1) +
+                " are not all in " + path + ", which has " + index.getBlockCount() + " blocks");
+
+        rangeEnd = end > 0 ? index.getOffset(end - 1) + BinaryCustomerFormat.BLOCK_HEADER_SIZE + index.getLength(end - 1) : 0;
+        window = null;
+        recordsLeft = 0;
+    }
+
+    @Override
+    protected Customer doRead() throws Exception {
+        if (recordsLeft == 0 && !nextBlock()) {
+            return null;
+        }
+        recordsLeft--;
+
+        int length = (int) readVarint();
+        int start = window.position();
+
+        long id = BinaryCustomerFormat.unZigZag(readVarint());
+        String firstName = readString();
+        String lastName = readString();
+        LocalDateTime birthdate = null;
+        if (window.get() != 0) {
+            long millis = BinaryCustomerFormat.unZigZag(readVarint());
+            birthdate = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+        }
+
+        window.position(start + length);
+        return new Customer(id, firstName, lastName, birthdate);
+    }
+
+    @Override
+    protected void jumpToItem(int itemIndex) throws Exception {
+        int skipped = 0;
+        while (nextBlock < end && skipped + index.getRecordCount(nextBlock) <= itemIndex) {
+            skipped += index.getRecordCount(nextBlock);
+            nextBlock++;
+        }
+
+        while (skipped < itemIndex) {
+            if (recordsLeft == 0 && !nextBlock()) {
+                return;
+            }
+            recordsLeft--;
+            int length = (int) readVarint();
+            window.position(window.position() + length);
+            skipped++;
+        }
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        window = null;
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private boolean nextBlock() throws IOException {
+        while (nextBlock < end) {
+            int block = nextBlock++;
+            long offset = index.getOffset(block) + BinaryCustomerFormat.BLOCK_HEADER_SIZE;
+            int length = index.getLength(block);
+
+            if (window == null || offset < windowStart || offset + length > windowStart + window.capacity()) {
+                windowStart = offset;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.max(length, Math.min(WINDOW_SIZE, rangeEnd - offset)));
+            }
+            window.position((int) (offset - windowStart));
+
+            recordsLeft = index.getRecordCount(block);
+            if (recordsLeft > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = window.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private String readString() {
+        int length = (int) readVarint() - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        window.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
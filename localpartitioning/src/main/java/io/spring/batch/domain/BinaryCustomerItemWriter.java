@@ -0,0 +1,239 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Writes customers in the {@link BinaryCustomerFormat}. Records are gathered in
+ * blocks of about {@link #setBlockSize(int) blockSize} bytes; the block index is
+ * written when the writer is closed.
+ * <p>
+ * The partial block is written at the end of every chunk and the file position
+ * is saved in the execution context. A restart truncates the file back to it
+ * and rebuilds the index of the blocks already written from their headers.
+ */
+public class BinaryCustomerItemWriter extends ItemStreamSupport implements ItemStreamWriter<Customer>, InitializingBean {
+
+    private static final String POSITION = "position";
+
+    private Path path;
+
+    private int blockSize = 64 * 1024;
+
+    private boolean saveState = true;
+
+    private FileChannel channel;
+
+    private BinaryCustomerFormat.Index index;
+
+    private final Buffer block = new Buffer();
+
+    private final Buffer record = new Buffer();
+
+    private int blockRecordCount;
+
+    public BinaryCustomerItemWriter() {
+        setName("binaryCustomerItemWriter");
+    }
+
+    /**
+     * The file to write. Missing parent directories are created.
+     *
+     * @param path the output file
+     */
+    public void setPath(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * The number of bytes after which a block is written. Defaults to 64 KiB.
+     *
+     * @param blockSize the block size in bytes
+     */
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Whether the file position is saved for restart. Defaults to true.
+     *
+     * @param saveState false to start over on restart
+     */
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(path, "A path is required");
+        Assert.isTrue(blockSize > 0, "The block size must be positive");
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        String key = getExecutionContextKey(POSITION);
+        long position = saveState && executionContext.containsKey(key) ? executionContext.getLong(key) : 0;
+
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (position > 0) {
+                channel.truncate(position);
+                index = BinaryCustomerFormat.scanIndex(channel, position);
+                channel.position(position);
+            }
+            else {
+                channel.truncate(0);
+                index = new BinaryCustomerFormat.Index();
+                write(ByteBuffer.wrap(BinaryCustomerFormat.MAGIC));
+            }
+        }
+        catch (IOException e) {
+            throw new ItemStreamException("Unable to open " + path, e);
+        }
+
+        block.reset();
+        blockRecordCount = 0;
+    }
+
+    @Override
+    public void write(List<? extends Customer> items) throws Exception {
+        for (Customer customer : items) {
+            record.reset();
+            record.writeVarint(BinaryCustomerFormat.zigZag(customer.getId()));
+            record.writeString(customer.getFirstName());
+            record.writeString(customer.getLastName());
+
+            LocalDateTime birthdate = customer.getBirthdate();
+            if (birthdate != null) {
+                record.write(1);
+                record.writeVarint(BinaryCustomerFormat.zigZag(birthdate.toInstant(ZoneOffset.UTC).toEpochMilli()));
+            }
+            else {
+                record.write(0);
+            }
+
+            block.writeVarint(record.size());
+            record.writeTo(block);
+            blockRecordCount++;
+
+            if (block.size() >= blockSize) {
+                writeBlock();
+            }
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            writeBlock();
+            if (saveState) {
+                executionContext.putLong(getExecutionContextKey(POSITION), channel.position());
+            }
+        }
+        catch (IOException e) {
+            throw new ItemStreamException("Unable to write to " + path, e);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            writeBlock();
+            index.writeTo(channel);
+            channel.close();
+        }
+        catch (IOException e) {
+            throw new ItemStreamException("Unable to close " + path, e);
+        }
+        finally {
+            channel = null;
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (blockRecordCount == 0) {
+            return;
+        }
+
+        index.add(channel.position(), blockRecordCount, block.size());
+
+        ByteBuffer header = ByteBuffer.allocate(BinaryCustomerFormat.BLOCK_HEADER_SIZE);
+        header.putInt(blockRecordCount).putInt(block.size()).flip();
+        write(header);
+        write(block.toByteBuffer());
+
+        block.reset();
+        blockRecordCount = 0;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * A growable byte buffer with the encodings of the format.
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+
+        Buffer() {
+            super(1024);
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1L);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeTo(Buffer target) {
+            target.write(buf, 0, count);
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package io.spring.batch.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link AsyncTaskExecutor} capping the number of tasks in flight, submitted and
+ * not yet finished, on a delegate executor such as a fixed thread pool. Shared by
+ * the partitions of a step, for example to compress the blocks of their
+ * {@link ParallelGzipItemWriter}s, an unbounded pool queues the work of every
+ * partition at once; with the cap, a partition is held back once the cap is
+ * reached. The {@link SaturationPolicy} decides how: wait for a task to finish,
+ * or run the task itself.
+ * <p>
+ * The following meters, tagged with the {@link #setName(String) name}, are
+ * registered in {@link Metrics#globalRegistry} unless another registry is set:
+ * <ul>
+ *     <li><code>batch.async.queue.depth</code>: the tasks in flight</li>
+ *     <li><code>batch.async.wait</code>: the time spent waiting for the cap</li>
+ *     <li><code>batch.async.caller.runs</code>: the tasks run by their caller</li>
+ * </ul>
+ */
+public class BoundedTaskExecutor implements AsyncTaskExecutor, InitializingBean {
+
+    /**
+     * What to do with a task submitted when the cap is reached.
+     */
+    public enum SaturationPolicy {
+
+        /**
+         * Wait until a task in flight finishes.
+         */
+        BLOCK,
+
+        /**
+         * Run the task in the calling thread.
+         */
+        CALLER_RUNS
+    }
+
+    private TaskExecutor taskExecutor;
+
+    private int maxInFlight = 100;
+
+    private SaturationPolicy saturationPolicy = SaturationPolicy.BLOCK;
+
+    private String name = "boundedTaskExecutor";
+
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private Semaphore permits;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private Timer waitTimer;
+
+    private Counter callerRuns;
+
+    /**
+     * The executor running the tasks.
+     *
+     * @param taskExecutor the delegate {@link TaskExecutor}
+     */
+    public void setTaskExecutor(TaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * The number of tasks allowed in flight. Defaults to 100.
+     *
+     * @param maxInFlight the maximum number of submitted and unfinished tasks
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * What to do when the cap is reached. Defaults to
+     * {@link SaturationPolicy#BLOCK}.
+     *
+     * @param saturationPolicy the {@link SaturationPolicy}
+     */
+    public void setSaturationPolicy(SaturationPolicy saturationPolicy) {
+        this.saturationPolicy = saturationPolicy;
+    }
+
+    /**
+     * The value of the <code>name</code> tag of the meters.
+     *
+     * @param name the name of the executor
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The registry of the meters. Defaults to {@link Metrics#globalRegistry}.
+     *
+     * @param meterRegistry a {@link MeterRegistry}
+     */
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(taskExecutor, "A TaskExecutor is required");
+        Assert.isTrue(maxInFlight > 0, "The maximum number of tasks in flight must be positive");
+        Assert.notNull(saturationPolicy, "A saturation policy is required");
+
+        permits = new Semaphore(maxInFlight);
+        Gauge.builder("batch.async.queue.depth", inFlight, AtomicInteger::get).
+                tag("name", name).
+                description("Tasks submitted and not finished").
+                register(meterRegistry);
+        waitTimer = Timer.builder("batch.async.wait").
+                tag("name", name).
+                description("Time spent waiting for a task in flight to finish").
+                register(meterRegistry);
+        callerRuns = Counter.builder("batch.async.caller.runs").
+                tag("name", name).
+                description("Tasks run by the submitting thread").
+                register(meterRegistry);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!permits.tryAcquire()) {
+            if (saturationPolicy == SaturationPolicy.CALLER_RUNS) {
+                callerRuns.increment();
+                task.run();
+                return;
+            }
+
+            long start = System.nanoTime();
+            try {
+                permits.acquire();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TaskRejectedException("Interrupted while waiting to submit a task to " + name, e);
+            }
+            finally {
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        inFlight.incrementAndGet();
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    task.run();
+                }
+                finally {
+                    release();
+                }
+            });
+        }
+        catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task, long startTimeout) {
+        execute(task);
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        FutureTask<Object> future = new FutureTask<>(task, null);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        permits.release();
+    }
+
+    /**
+     * @return the number of tasks submitted and not finished
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
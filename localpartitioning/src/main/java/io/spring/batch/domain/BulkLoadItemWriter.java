@@ -0,0 +1,210 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.file.transform.FieldExtractor;
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.List;
+
+/**
+ * {@link ItemWriter} that loads each chunk with the native bulk loader of the
+ * database instead of binding every row to a batched statement. The chunk is
+ * streamed to a temporary CSV file through a buffered {@link FileChannel}, then
+ * loaded with a single statement:
+ * <ul>
+ * <li>H2: <code>INSERT INTO ... SELECT * FROM CSVREAD(...)</code></li>
+ * <li>MySQL: <code>LOAD DATA LOCAL INFILE</code>, which needs
+ * <code>allowLoadLocalInfile=true</code> on the JDBC URL and
+ * <code>local_infile</code> enabled on the server</li>
+ * </ul>
+ * The statement goes through a {@link JdbcTemplate} on the same data source, so
+ * it takes part in the chunk transaction. The file is deleted once loaded.
+ *
+ * @param <T> the type of the items
+ */
+public class BulkLoadItemWriter<T> implements ItemWriter<T>, InitializingBean {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = new DateTimeFormatterBuilder().
+            appendPattern("uuuu-MM-dd HH:mm:ss").
+            appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true).
+            toFormatter();
+
+    private DataSource dataSource;
+
+    private JdbcOperations jdbcTemplate;
+
+    private DatabaseType databaseType;
+
+    private String table;
+
+    private String columns;
+
+    private FieldExtractor<T> fieldExtractor;
+
+    private File directory = new File(System.getProperty("java.io.tmpdir"));
+
+    private int bufferSize = 64 * 1024;
+
+    /**
+     * The data source to load into. Its type decides which loader is used.
+     *
+     * @param dataSource a {@link DataSource}
+     */
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * The name of the table to load into.
+     *
+     * @param table the name of the table
+     */
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    /**
+     * The comma separated columns to load, in the order of the extracted fields.
+     *
+     * @param columns the column names
+     */
+    public void setColumns(String columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Extracts the column values of an item, in the order of the columns.
+     *
+     * @param fieldExtractor a {@link FieldExtractor}
+     */
+    public void setFieldExtractor(FieldExtractor<T> fieldExtractor) {
+        this.fieldExtractor = fieldExtractor;
+    }
+
+    /**
+     * The directory the temporary files are written to. It must be readable by
+     * the database, which for <code>CSVREAD</code> means the H2 engine itself.
+     *
+     * @param directory the directory, defaults to <code>java.io.tmpdir</code>
+     */
+    public void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * The size of the buffer in front of the file channel.
+     *
+     * @param bufferSize the size in chars, defaults to 64k
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(dataSource, "A DataSource is required");
+        Assert.hasText(table, "A table is required");
+        Assert.hasText(columns, "The columns are required");
+        Assert.notNull(fieldExtractor, "A FieldExtractor is required");
+
+        databaseType = DatabaseType.fromMetaData(dataSource);
+        Assert.state(databaseType == DatabaseType.H2 || databaseType == DatabaseType.MYSQL,
+                "Bulk loading is only supported on H2 and MySQL, not " + databaseType);
+    }
+
+    @Override
+    public void write(List<? extends T> items) throws Exception {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        Path file = Files.createTempFile(directory.toPath(), "bulk-load-", ".csv");
+        try {
+            writeFile(items, file);
+
+            int count = jdbcTemplate.update(loadStatement(file));
+            if (count != items.size()) {
+                throw new IncorrectResultSizeDataAccessException("Bulk load of " + items.size() +
+                        " items into " + table + " loaded " + count + " rows", items.size(), count);
+            }
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void writeFile(List<? extends T> items, Path file) throws IOException {
+        String nullValue = databaseType == DatabaseType.MYSQL ? "NULL" : "";
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1), bufferSize)) {
+            for (T item : items) {
+                Object[] values = fieldExtractor.extract(item);
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writeValue(writer, values[i], nullValue);
+                }
+                writer.write('\n');
+            }
+        }
+    }
+
+    private void writeValue(Writer writer, Object value, String nullValue) throws IOException {
+        if (value == null) {
+            writer.write(nullValue);
+        }
+        else if (value instanceof Number) {
+            writer.write(value.toString());
+        }
+        else {
+            String text = value instanceof LocalDateTime ?
+                    TIMESTAMP_FORMATTER.format((LocalDateTime) value) : value.toString();
+
+            writer.write('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"') {
+                    writer.write('"');
+                }
+                writer.write(c);
+            }
+            writer.write('"');
+        }
+    }
+
+    private String loadStatement(Path file) {
+        String path = file.toAbsolutePath().toString().replace("'", "''");
+
+        if (databaseType == DatabaseType.MYSQL) {
+            return "LOAD DATA LOCAL INFILE '" + path.replace("\\", "\\\\") + "' INTO TABLE " + table +
+                    " CHARACTER SET utf8mb4 FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY ''" +
+                    " LINES TERMINATED BY '\\n' (" + columns + ")";
+        }
+
+        return "INSERT INTO " + table + " (" + columns + ") SELECT * FROM CSVREAD('" + path + "', '" +
+                columns.replace(" ", "").replace("'", "''") + "', 'charset=UTF-8')";
+    }
+}
@@ -29,11 +29,13 @@ import java.util.Map;
  */
 public class ColumnRangePartitioner implements Partitioner {
 
-    private JdbcOperations jdbcTemplate;
+    protected JdbcOperations jdbcTemplate;
 
-    private String table;
+    protected String table;
 
-    private String column;
+    protected String column;
+
+    private ConcurrencyPlanner concurrencyPlanner;
 
     /**
      * The name of the SQL table the data are in.
@@ -62,6 +64,39 @@ public class ColumnRangePartitioner implements Partitioner {
         jdbcTemplate = new JdbcTemplate(dataSource);
     }
 
+    /**
+     * Derives the grid size from the row count of the table instead of the one
+     * requested by the step, when the step cannot know it up front: a step built
+     * before its table is filled, or a remote partitioning manager step, whose
+     * partition handler waits for as many replies as there are partitions,
+     * whatever the grid size it was built with. The rows are counted each time
+     * the step partitions the table.
+     *
+     * @param concurrencyPlanner a {@link ConcurrencyPlanner}
+     */
+    public void setConcurrencyPlanner(ConcurrencyPlanner concurrencyPlanner) {
+        this.concurrencyPlanner = concurrencyPlanner;
+    }
+
+    /**
+     * Count the rows of the table, so the grid size can be derived from the
+     * amount of data.
+     *
+     * @return the number of rows in the table
+     */
+    public long countRows() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) from " + table, Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * @param gridSize the grid size requested by the step
+     * @return the grid size planned from the row count, if there is a planner
+     */
+    protected int plannedGridSize(int gridSize) {
+        return concurrencyPlanner != null ? concurrencyPlanner.getGridSize(countRows()) : gridSize;
+    }
+
     /**
      * Partition a database table assuming that the data in the column specified
      * are uniformly distributed. The execution context values will have keys
@@ -72,10 +107,12 @@ public class ColumnRangePartitioner implements Partitioner {
      */
     @Override
     public Map<String, ExecutionContext> partition(int gridSize) {
+        gridSize = plannedGridSize(gridSize);
         Integer minValue = jdbcTemplate.queryForObject("SELECT MIN(" + column + ") from " + table, Integer.class);
         int min = minValue != null ? minValue : 0;
         Integer maxValue = jdbcTemplate.queryForObject("SELECT MAX(" + column + ") from " + table, Integer.class);
         int max = maxValue != null ? maxValue : 0;
+
         int targetSize = (max - min) / gridSize + 1;
 
         Map<String, ExecutionContext> result = new HashMap<>();
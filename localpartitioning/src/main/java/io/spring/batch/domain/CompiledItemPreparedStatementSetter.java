@@ -0,0 +1,103 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.item.database.ItemPreparedStatementSetter;
+import org.springframework.beans.BeanUtils;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.util.Assert;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * {@link ItemPreparedStatementSetter} that binds bean properties to positional
+ * parameters through {@link MethodHandle}s resolved once, when the setter is
+ * created. It replaces the
+ * {@link org.springframework.batch.item.database.BeanPropertyItemSqlParameterSourceProvider},
+ * which goes through a <code>BeanWrapper</code> and a parameter map for every
+ * field of every item.
+ * <p>
+ * Primitive <code>long</code>, <code>int</code>, <code>double</code> and
+ * <code>boolean</code> properties are bound with the matching typed setter
+ * without boxing; other properties are bound with the SQL type derived from the
+ * property type, as the bean property provider does.
+ *
+ * @param <T> the type of the items
+ */
+public class CompiledItemPreparedStatementSetter<T> implements ItemPreparedStatementSetter<T> {
+
+    private final MethodHandle[] getters;
+
+    private final Class<?>[] types;
+
+    private final int[] sqlTypes;
+
+    /**
+     * @param itemType the class of the items
+     * @param propertyNames the bean properties to bind, in parameter order
+     */
+    public CompiledItemPreparedStatementSetter(Class<T> itemType, List<String> propertyNames) {
+        getters = new MethodHandle[propertyNames.size()];
+        types = new Class<?>[propertyNames.size()];
+        sqlTypes = new int[propertyNames.size()];
+
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        for (int i = 0; i < propertyNames.size(); i++) {
+            PropertyDescriptor propertyDescriptor = BeanUtils.getPropertyDescriptor(itemType, propertyNames.get(i));
+            Assert.state(propertyDescriptor != null && propertyDescriptor.getReadMethod() != null,
+                    "No readable property '" + propertyNames.get(i) + "' on " + itemType.getName());
+
+            types[i] = propertyDescriptor.getPropertyType();
+            sqlTypes[i] = StatementCreatorUtils.javaTypeToSqlParameterType(types[i]);
+            try {
+                MethodHandle getter = lookup.unreflect(propertyDescriptor.getReadMethod());
+                getters[i] = getter.asType(MethodType.methodType(isBoundWithoutBoxing(types[i]) ? types[i] : Object.class,
+                        Object.class));
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException("Unable to access property '" + propertyNames.get(i) +
+                        "' on " + itemType.getName(), e);
+            }
+        }
+    }
+
+    @Override
+    public void setValues(T item, PreparedStatement ps) throws SQLException {
+        Object target = item;
+        try {
+            for (int i = 0; i < getters.length; i++) {
+                Class<?> type = types[i];
+                MethodHandle getter = getters[i];
+                if (type == long.class) {
+                    ps.setLong(i + 1, (long) getter.invokeExact(target));
+                }
+                else if (type == int.class) {
+                    ps.setInt(i + 1, (int) getter.invokeExact(target));
+                }
+                else if (type == double.class) {
+                    ps.setDouble(i + 1, (double) getter.invokeExact(target));
+                }
+                else if (type == boolean.class) {
+                    ps.setBoolean(i + 1, (boolean) getter.invokeExact(target));
+                }
+                else {
+                    StatementCreatorUtils.setParameterValue(ps, i + 1, sqlTypes[i], (Object) getter.invokeExact(target));
+                }
+            }
+        }
+        catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new IllegalStateException("Unable to read the properties of " + item, e);
+        }
+    }
+
+    private static boolean isBoundWithoutBoxing(Class<?> type) {
+        return type == long.class || type == int.class || type == double.class || type == boolean.class;
+    }
+}
@@ -0,0 +1,171 @@
+package io.spring.batch.domain;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A block of customers stored column by column, used as a single item by steps
+ * that move whole pages of rows at once. A block of 1000 customers is a handful
+ * of arrays instead of 1000 {@link Customer}s holding 3000 more objects:
+ * <ul>
+ * <li>ids are a <code>long[]</code></li>
+ * <li>first and last names are codes into a dictionary shared by both columns,
+ * so a name repeated in the block is kept once</li>
+ * <li>birthdates are a <code>long[]</code> of epoch milliseconds, taking the
+ * local date time as UTC; anything below the millisecond is dropped</li>
+ * </ul>
+ * {@link #get(int)} gives a {@link Customer} view of a row for code that needs
+ * one.
+ */
+public class CustomerColumns {
+
+    private static final int NULL_NAME = -1;
+
+    /**
+     * The birthdate in epoch milliseconds of a customer without one.
+     */
+    public static final long NO_BIRTHDATE = Long.MIN_VALUE;
+
+    private final long[] ids;
+
+    private final int[] firstNames;
+
+    private final int[] lastNames;
+
+    private final long[] birthdates;
+
+    private final List<String> dictionary = new ArrayList<>();
+
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    private int size;
+
+    /**
+     * @param capacity the maximum number of customers in the block
+     */
+    public CustomerColumns(int capacity) {
+        ids = new long[capacity];
+        firstNames = new int[capacity];
+        lastNames = new int[capacity];
+        birthdates = new long[capacity];
+    }
+
+    public void add(long id, String firstName, String lastName, LocalDateTime birthdate) {
+        add(id, firstName, lastName, birthdate != null ? birthdate.toInstant(ZoneOffset.UTC).toEpochMilli() : NO_BIRTHDATE);
+    }
+
+    /**
+     * Adds a customer without going through a {@link LocalDateTime}.
+     *
+     * @param birthdateMillis the birthdate in epoch milliseconds, as if it were
+     * UTC, or {@link #NO_BIRTHDATE}
+     */
+    public void add(long id, String firstName, String lastName, long birthdateMillis) {
+        if (size == ids.length) {
+            throw new IllegalStateException("The block is full (" + size + " customers)");
+        }
+
+        ids[size] = id;
+        firstNames[size] = encode(firstName);
+        lastNames[size] = encode(lastName);
+        birthdates[size] = birthdateMillis;
+        size++;
+    }
+
+    public void add(Customer customer) {
+        add(customer.getId(), customer.getFirstName(), customer.getLastName(), customer.getBirthdate());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == ids.length;
+    }
+
+    public int capacity() {
+        return ids.length;
+    }
+
+    public long getId(int row) {
+        return ids[check(row)];
+    }
+
+    public String getFirstName(int row) {
+        return decode(firstNames[check(row)]);
+    }
+
+    public String getLastName(int row) {
+        return decode(lastNames[check(row)]);
+    }
+
+    /**
+     * @param row the index of the customer in the block
+     * @return the birthdate in epoch milliseconds, as if it were UTC
+     * @throws IllegalStateException if the customer has no birthdate
+     */
+    public long getBirthdateMillis(int row) {
+        long birthdate = birthdates[check(row)];
+        if (birthdate == NO_BIRTHDATE) {
+            throw new IllegalStateException("Customer " + ids[row] + " has no birthdate");
+        }
+        return birthdate;
+    }
+
+    public boolean hasBirthdate(int row) {
+        return birthdates[check(row)] != NO_BIRTHDATE;
+    }
+
+    public LocalDateTime getBirthdate(int row) {
+        long birthdate = birthdates[check(row)];
+        return birthdate != NO_BIRTHDATE ? LocalDateTime.ofInstant(Instant.ofEpochMilli(birthdate), ZoneOffset.UTC) : null;
+    }
+
+    public Customer get(int row) {
+        return new Customer(getId(row), getFirstName(row), getLastName(row), getBirthdate(row));
+    }
+
+    private int encode(String name) {
+        if (name == null) {
+            return NULL_NAME;
+        }
+
+        Integer code = codes.get(name);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(name);
+            codes.put(name, code);
+        }
+        return code;
+    }
+
+    private String decode(int code) {
+        return code != NULL_NAME ? dictionary.get(code) : null;
+    }
+
+    private int check(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of a block of " + size);
+        }
+        return row;
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerColumns{" +
+                "size=" + size +
+                ", names=" + dictionary.size() +
+                (size > 0 ? ", ids=" + ids[0] + ".." + ids[size - 1] : "") +
+                '}';
+    }
+}
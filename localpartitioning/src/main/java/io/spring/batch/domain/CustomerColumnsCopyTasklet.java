@@ -0,0 +1,92 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+
+/**
+ * Copies {@link CustomerColumns} blocks, one block per call and so per
+ * transaction, from a reader such as {@link CustomerColumnsItemReader} to a
+ * writer such as {@link CustomerColumnsItemWriter}, through an optional
+ * processor such as {@link CustomerColumnsItemProcessor}. The customers of each
+ * block are recorded as the read, filter and write counts of the step, where a
+ * chunk oriented step would count the blocks.
+ * <p>
+ * The reader is not registered by the tasklet: when it is an
+ * {@link org.springframework.batch.item.ItemStream} it must be registered as a
+ * stream of the step.
+ */
+public class CustomerColumnsCopyTasklet implements Tasklet, InitializingBean {
+
+    private ItemReader<CustomerColumns> itemReader;
+
+    private ItemProcessor<CustomerColumns, CustomerColumns> itemProcessor;
+
+    private ItemWriter<CustomerColumns> itemWriter;
+
+    /**
+     * The reader of the blocks.
+     *
+     * @param itemReader an {@link ItemReader} of {@link CustomerColumns}
+     */
+    public void setItemReader(ItemReader<CustomerColumns> itemReader) {
+        this.itemReader = itemReader;
+    }
+
+    /**
+     * The processor of the blocks, returning the block of the customers to write,
+     * or <code>null</code> to filter out the whole block. Blocks are written as
+     * read if not set.
+     *
+     * @param itemProcessor an {@link ItemProcessor} of {@link CustomerColumns}
+     */
+    public void setItemProcessor(ItemProcessor<CustomerColumns, CustomerColumns> itemProcessor) {
+        this.itemProcessor = itemProcessor;
+    }
+
+    /**
+     * The writer of the blocks.
+     *
+     * @param itemWriter an {@link ItemWriter} of {@link CustomerColumns}
+     */
+    public void setItemWriter(ItemWriter<CustomerColumns> itemWriter) {
+        this.itemWriter = itemWriter;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(itemReader, "An ItemReader is required");
+        Assert.notNull(itemWriter, "An ItemWriter is required");
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        CustomerColumns block = itemReader.read();
+        if (block == null) {
+            return RepeatStatus.FINISHED;
+        }
+
+        CustomerColumns processed = itemProcessor != null ? itemProcessor.process(block) : block;
+        int written = processed != null ? processed.size() : 0;
+        if (written > 0) {
+            itemWriter.write(Collections.singletonList(processed));
+        }
+
+        // through the contribution, so the counts of a rolled back block are dropped
+        for (int row = 0; row < block.size(); row++) {
+            contribution.incrementReadCount();
+        }
+        contribution.incrementFilterCount(block.size() - written);
+        contribution.incrementWriteCount(written);
+
+        return RepeatStatus.CONTINUABLE;
+    }
+}
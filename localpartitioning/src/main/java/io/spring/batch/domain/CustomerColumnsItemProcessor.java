@@ -0,0 +1,33 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.item.ItemProcessor;
+
+/**
+ * Runs an {@link ItemProcessor} of {@link Customer}s over a
+ * {@link CustomerColumns} block, one {@link Customer} view per row. Customers
+ * the delegate filters out (returns <code>null</code> for) are left out of the
+ * resulting block; a block left empty is filtered out as a whole.
+ */
+public class CustomerColumnsItemProcessor implements ItemProcessor<CustomerColumns, CustomerColumns> {
+
+    private final ItemProcessor<Customer, Customer> delegate;
+
+    /**
+     * @param delegate the processor applied to every customer
+     */
+    public CustomerColumnsItemProcessor(ItemProcessor<Customer, Customer> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public CustomerColumns process(CustomerColumns block) throws Exception {
+        CustomerColumns result = new CustomerColumns(block.size());
+        for (int row = 0; row < block.size(); row++) {
+            Customer customer = delegate.process(block.get(row));
+            if (customer != null) {
+                result.add(customer);
+            }
+        }
+        return result.isEmpty() ? null : result;
+    }
+}
@@ -0,0 +1,213 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Reads the <code>id, firstName, lastName, birthdate</code> columns of a table
+ * page by page, in <code>id</code> order, each page filling one
+ * {@link CustomerColumns} straight from the {@link ResultSet}. Pages are fetched
+ * with a keyset query (<code>id &gt; last id read</code>) within an optional
+ * inclusive id range, as produced by {@link ColumnRangePartitioner}. The last id
+ * read is saved in the execution context, so a restart picks up after the last
+ * committed block.
+ * <p>
+ * Each call to {@link #read()} returns a new block: a step using this reader
+ * should copy one block per transaction, as {@link CustomerColumnsCopyTasklet}
+ * does, the block size giving the number of rows per transaction.
+ */
+public class CustomerColumnsItemReader extends ItemStreamSupport implements ItemStreamReader<CustomerColumns>, InitializingBean {
+
+    private static final String LAST_KEY = "lastKey";
+
+    private JdbcTemplate jdbcTemplate;
+
+    private String table;
+
+    private Long minValue;
+
+    private Long maxValue;
+
+    private int blockSize = 1000;
+
+    private int fetchSize = 1000;
+
+    private boolean saveState = true;
+
+    private String firstPageSql;
+
+    private String nextPageSql;
+
+    private Long lastKey;
+
+    private boolean exhausted;
+
+    public CustomerColumnsItemReader() {
+        setName("customerColumnsItemReader");
+    }
+
+    /**
+     * The data source to read from.
+     *
+     * @param dataSource a {@link DataSource}
+     */
+    public void setDataSource(DataSource dataSource) {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * The name of the table holding the customers.
+     *
+     * @param table the name of the table
+     */
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    /**
+     * The lowest id to read, inclusive. Unbounded if not set.
+     *
+     * @param minValue the lowest id
+     */
+    public void setMinValue(Long minValue) {
+        this.minValue = minValue;
+    }
+
+    /**
+     * The highest id to read, inclusive. Unbounded if not set.
+     *
+     * @param maxValue the highest id
+     */
+    public void setMaxValue(Long maxValue) {
+        this.maxValue = maxValue;
+    }
+
+    /**
+     * The number of customers per block. Defaults to 1000.
+     *
+     * @param blockSize the number of customers per block
+     */
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * The JDBC fetch size hint. Defaults to 1000.
+     *
+     * @param fetchSize the fetch size
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Whether the last id read is saved for restart. Defaults to true.
+     *
+     * @param saveState false to start over on restart
+     */
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(jdbcTemplate, "A DataSource is required");
+        Assert.hasText(table, "A table is required");
+        Assert.isTrue(blockSize > 0, "The block size must be positive");
+
+        jdbcTemplate.setFetchSize(fetchSize);
+
+        String select = "SELECT id, firstName, lastName, birthdate FROM " + table + " WHERE ";
+        String upperBound = maxValue != null ? " AND id <= " + maxValue : "";
+        String orderBy = " ORDER BY id LIMIT " + blockSize;
+
+        firstPageSql = select + (minValue != null ? "id >= " + minValue : "1 = 1") + upperBound + orderBy;
+        nextPageSql = select + "id > ?" + upperBound + orderBy;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        String key = getExecutionContextKey(LAST_KEY);
+        lastKey = saveState && executionContext.containsKey(key) ? executionContext.getLong(key) : null;
+        exhausted = false;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (saveState && lastKey != null) {
+            executionContext.putLong(getExecutionContextKey(LAST_KEY), lastKey);
+        }
+    }
+
+    @Override
+    public CustomerColumns read() {
+        if (exhausted) {
+            return null;
+        }
+
+        CustomerColumns block = new CustomerColumns(blockSize);
+        ResultSetExtractor<CustomerColumns> extractor = resultSet -> fill(resultSet, block);
+        if (lastKey == null) {
+            jdbcTemplate.query(firstPageSql, extractor);
+        }
+        else {
+            jdbcTemplate.query(nextPageSql, extractor, lastKey);
+        }
+
+        if (block.size() < blockSize) {
+            exhausted = true;
+        }
+        if (block.isEmpty()) {
+            return null;
+        }
+
+        lastKey = block.getId(block.size() - 1);
+        return block;
+    }
+
+    private static CustomerColumns fill(ResultSet resultSet, CustomerColumns block) throws SQLException {
+        int birthdateType = resultSet.getMetaData().getColumnType(4);
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        while (resultSet.next()) {
+            block.add(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3),
+                    birthdateMillis(resultSet, birthdateType, utc));
+        }
+        return block;
+    }
+
+    // the birthdate as the epoch milliseconds of its local date and time read as UTC,
+    // as CustomerColumns keeps it, without going through java.time
+    private static long birthdateMillis(ResultSet resultSet, int type, Calendar utc) throws SQLException {
+        if (type == Types.TIMESTAMP) {
+            Timestamp birthdate = resultSet.getTimestamp(4, utc);
+            return birthdate != null ? birthdate.getTime() : CustomerColumns.NO_BIRTHDATE;
+        }
+        if (type == Types.DATE) {
+            Date birthdate = resultSet.getDate(4, utc);
+            return birthdate != null ? birthdate.getTime() : CustomerColumns.NO_BIRTHDATE;
+        }
+
+        String text = resultSet.getString(4);
+        if (text == null) {
+            return CustomerColumns.NO_BIRTHDATE;
+        }
+
+        long birthdate = CustomerRowMapper.parseEpochMillis(text);
+        return birthdate != Long.MIN_VALUE ? birthdate : resultSet.getTimestamp(4, utc).getTime();
+    }
+}
@@ -0,0 +1,104 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Writes {@link CustomerColumns} blocks with one JDBC batch per block, binding
+ * the columns of each row straight from the block arrays. The statement takes
+ * the <code>id, firstName, lastName, birthdate</code> values as positional
+ * parameters, for example
+ * <code>INSERT INTO NEW_CUSTOMER VALUES (?, ?, ?, ?)</code>, and must update
+ * exactly one row per customer. The birthdate is bound from its epoch
+ * milliseconds as a <code>TIMESTAMP</code> in UTC, the time zone
+ * {@link CustomerColumns} keeps it in.
+ */
+public class CustomerColumnsItemWriter implements ItemWriter<CustomerColumns>, InitializingBean {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private String sql;
+
+    /**
+     * The data source to write to.
+     *
+     * @param dataSource a {@link DataSource}
+     */
+    public void setDataSource(DataSource dataSource) {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * The statement run for every customer.
+     *
+     * @param sql the SQL statement with 4 positional parameters
+     */
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(jdbcTemplate, "A DataSource is required");
+        Assert.hasText(sql, "A SQL statement is required");
+    }
+
+    @Override
+    public void write(List<? extends CustomerColumns> blocks) {
+        for (CustomerColumns block : blocks) {
+            if (block.isEmpty()) {
+                continue;
+            }
+
+            int[] updateCounts = jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+
+                // reused for every row: drivers convert the value when it is bound
+                private final Timestamp birthdate = new Timestamp(0);
+
+                private final Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+                @Override
+                public void setValues(PreparedStatement ps, int row) throws SQLException {
+                    ps.setLong(1, block.getId(row));
+                    ps.setString(2, block.getFirstName(row));
+                    ps.setString(3, block.getLastName(row));
+                    if (block.hasBirthdate(row)) {
+                        birthdate.setTime(block.getBirthdateMillis(row));
+                        ps.setTimestamp(4, birthdate, utc);
+                    }
+                    else {
+                        ps.setNull(4, Types.TIMESTAMP);
+                    }
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return block.size();
+                }
+            });
+
+            for (int row = 0; row < updateCounts.length; row++) {
+                if (updateCounts[row] == 0) {
+                    throw new EmptyResultDataAccessException("Item " + row + " of " + block +
+                            " did not update any rows", 1);
+                }
+                Assert.state(updateCounts[row] == 1 || updateCounts[row] == Statement.SUCCESS_NO_INFO,
+                        "Item " + row + " of " + block + " updated " + updateCounts[row] + " rows");
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.item.file.mapping.FieldSetMapper;
+import org.springframework.batch.item.file.transform.FieldSet;
+
+import java.time.LocalDateTime;
+
+/**
+ * Maps the <code>id, firstName, lastName, birthdate</code> fields of a line to a
+ * {@link Customer}. Empty names and birthdates are read as null; birthdates are
+ * decoded as by {@link CustomerRowMapper}, or as ISO local date times.
+ */
+public class CustomerFieldSetMapper implements FieldSetMapper<Customer> {
+
+    @Override
+    public Customer mapFieldSet(FieldSet fieldSet) {
+        return new Customer(fieldSet.readLong("id"),
+                text(fieldSet.readRawString("firstName")),
+                text(fieldSet.readRawString("lastName")),
+                birthdate(fieldSet.readRawString("birthdate")));
+    }
+
+    private static String text(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static LocalDateTime birthdate(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+
+        LocalDateTime birthdate = CustomerRowMapper.parse(value);
+        return birthdate != null ? birthdate : LocalDateTime.parse(value);
+    }
+}
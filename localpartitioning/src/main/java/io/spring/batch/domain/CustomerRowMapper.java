@@ -19,17 +19,245 @@ import org.springframework.jdbc.core.RowMapper;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
+ * Maps the <code>id, firstName, lastName, birthdate</code> columns to a
+ * {@link Customer}. The column indexes are resolved once per {@link ResultSet}
+ * and the <code>birthdate</code> text is decoded by a fixed format parser
+ * (<code>yyyy-MM-dd HH:mm[:ss[.fraction]]</code>, with a space or a
+ * <code>T</code>), falling back to the driver for anything else. A
+ * <code>TIMESTAMP</code> or <code>DATE</code> column is read as such, without
+ * going through text.
+ * <p>
+ * Repeated first and last names can be shared through a bounded cache, cleared
+ * with every new result set (that is, every page). The mapper keeps state and
+ * must not be shared by readers running concurrently.
+ *
  * @author Michael Minella
  */
 public class CustomerRowMapper implements RowMapper<Customer> {
+
+	private final int nameCacheSize;
+
+	private final Map<String, String> names;
+
+	private ResultSet resultSet;
+
+	private int idIndex;
+
+	private int firstNameIndex;
+
+	private int lastNameIndex;
+
+	private int birthdateIndex;
+
+	private int birthdateType;
+
+	public CustomerRowMapper() {
+		this(0);
+	}
+
+	/**
+	 * @param nameCacheSize the number of distinct names kept per page to dedupe
+	 * repeated first and last names, 0 to disable
+	 */
+	public CustomerRowMapper(int nameCacheSize) {
+		this.nameCacheSize = nameCacheSize;
+		this.names = nameCacheSize > 0 ? new HashMap<>(nameCacheSize * 2) : null;
+	}
+
 	@Override
 	public Customer mapRow(ResultSet resultSet, int i) throws SQLException {
-		return new Customer(resultSet.getLong("id"),
-				resultSet.getString("firstName"),
-				resultSet.getString("lastName"),
-				resultSet.getObject("birthdate", LocalDateTime.class));
+		if (resultSet != this.resultSet) {
+			resolve(resultSet);
+		}
+
+		return new Customer(resultSet.getLong(idIndex),
+				name(resultSet.getString(firstNameIndex)),
+				name(resultSet.getString(lastNameIndex)),
+				birthdate(resultSet));
+	}
+
+	private void resolve(ResultSet resultSet) throws SQLException {
+		this.resultSet = resultSet;
+		idIndex = resultSet.findColumn("id");
+		firstNameIndex = resultSet.findColumn("firstName");
+		lastNameIndex = resultSet.findColumn("lastName");
+		birthdateIndex = resultSet.findColumn("birthdate");
+		birthdateType = resultSet.getMetaData().getColumnType(birthdateIndex);
+
+		if (names != null) {
+			names.clear();
+		}
+	}
+
+	private String name(String name) {
+		if (names == null || name == null) {
+			return name;
+		}
+
+		String cached = names.get(name);
+		if (cached != null) {
+			return cached;
+		}
+		if (names.size() < nameCacheSize) {
+			names.put(name, name);
+		}
+		return name;
+	}
+
+	private LocalDateTime birthdate(ResultSet resultSet) throws SQLException {
+		if (birthdateType == Types.TIMESTAMP) {
+			return resultSet.getObject(birthdateIndex, LocalDateTime.class);
+		}
+		if (birthdateType == Types.DATE) {
+			LocalDate birthdate = resultSet.getObject(birthdateIndex, LocalDate.class);
+			return birthdate != null ? birthdate.atStartOfDay() : null;
+		}
+
+		String text = resultSet.getString(birthdateIndex);
+		if (text == null) {
+			return null;
+		}
+
+		LocalDateTime birthdate = parse(text);
+		return birthdate != null ? birthdate : resultSet.getObject(birthdateIndex, LocalDateTime.class);
+	}
+
+	static LocalDateTime parse(String text) {
+		int length = text.length();
+		if (!hasDateTimeLayout(text)) {
+			return null;
+		}
+
+		int year = digits(text, 0, 4);
+		int month = digits(text, 5, 7);
+		int day = digits(text, 8, 10);
+		int hour = digits(text, 11, 13);
+		int minute = digits(text, 14, 16);
+		int second = 0;
+		int nano = 0;
+
+		if (length > 16) {
+			if (length < 19 || text.charAt(16) != ':') {
+				return null;
+			}
+			second = digits(text, 17, 19);
+
+			if (length > 19) {
+				if (text.charAt(19) != '.' || length > 29) {
+					return null;
+				}
+				nano = digits(text, 20, length);
+				for (int scale = length - 20; scale < 9 && nano >= 0; scale++) {
+					nano *= 10;
+				}
+			}
+		}
+
+		if ((year | month | day | hour | minute | second | nano) < 0) {
+			return null;
+		}
+
+		try {
+			return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+		}
+		catch (DateTimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Parses the same format as {@link #parse(String)} straight to epoch
+	 * milliseconds, read as UTC, without creating any object.
+	 *
+	 * @return the epoch milliseconds, or {@link Long#MIN_VALUE} if the text is not
+	 * in the expected format
+	 */
+	static long parseEpochMillis(String text) {
+		int length = text.length();
+		if (!hasDateTimeLayout(text)) {
+			return Long.MIN_VALUE;
+		}
+
+		int year = digits(text, 0, 4);
+		int month = digits(text, 5, 7);
+		int day = digits(text, 8, 10);
+		int hour = digits(text, 11, 13);
+		int minute = digits(text, 14, 16);
+		int second = 0;
+		int millis = 0;
+
+		if (length > 16) {
+			if (length < 19 || text.charAt(16) != ':') {
+				return Long.MIN_VALUE;
+			}
+			second = digits(text, 17, 19);
+
+			if (length > 19) {
+				if (text.charAt(19) != '.' || length > 29) {
+					return Long.MIN_VALUE;
+				}
+				millis = digits(text, 20, Math.min(length, 23));
+				for (int scale = Math.min(length, 23) - 20; scale < 3 && millis >= 0; scale++) {
+					millis *= 10;
+				}
+				if (length > 23 && digits(text, 23, length) < 0) {
+					return Long.MIN_VALUE;
+				}
+			}
+		}
+
+		if ((year | month | day | hour | minute | second | millis) < 0 || month < 1 || month > 12 ||
+				day < 1 || day > lengthOfMonth(year, month) || hour > 23 || minute > 59 || second > 59) {
+			return Long.MIN_VALUE;
+		}
+
+		long seconds = epochDay(year, month, day) * 86_400 + hour * 3600 + minute * 60 + second;
+		return seconds * 1000 + millis;
+	}
+
+	private static boolean hasDateTimeLayout(String text) {
+		return text.length() >= 16 && text.charAt(4) == '-' && text.charAt(7) == '-' &&
+				(text.charAt(10) == ' ' || text.charAt(10) == 'T') && text.charAt(13) == ':';
+	}
+
+	private static int lengthOfMonth(int year, int month) {
+		if (month == 2) {
+			return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+		}
+		return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+	}
+
+	// days since 1970-01-01 of a proleptic Gregorian date, as LocalDate.toEpochDay()
+	private static long epochDay(int year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = Math.floorDiv(y, 400);
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146_097 + dayOfEra - 719_468;
+	}
+
+	private static int digits(String text, int start, int end) {
+		if (start >= end) {
+			return -1;
+		}
+
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			int digit = text.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
 	}
 }
@@ -0,0 +1,149 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Concatenates the files written by the partitions of a step into one file,
+ * using {@link FileChannel#transferTo} so the content is copied by the kernel
+ * without going through the heap. The partition files are named
+ * <code>&lt;target&gt;.part-&lt;number&gt;</code> and are concatenated in the
+ * order of their numbers, for example the lowest key of their partition as put
+ * by {@link ColumnRangePartitioner}.
+ * <p>
+ * Only the files registered in the job execution context by a
+ * {@link PartFileListener} on the partitioned step are merged: files left over
+ * by other executions, whose partitions may not have had the same boundaries,
+ * are ignored, and a registered file that is missing fails the step.
+ * <p>
+ * The result is written next to the target and moved over it once complete,
+ * then the partition files are deleted; until then the step can be restarted.
+ */
+public class FileMergeTasklet implements Tasklet {
+
+    private static final String PART = ".part-";
+
+    private static final String PART_KEY = FileMergeTasklet.class.getSimpleName() + ".part:";
+
+    private static final String MERGED_KEY = FileMergeTasklet.class.getSimpleName() + ".merged";
+
+    private Path target;
+
+    /**
+     * The merged file.
+     *
+     * @param target the path of the merged file
+     */
+    public void setTarget(Path target) {
+        this.target = target;
+    }
+
+    /**
+     * @param target the path of the merged file
+     * @param number the number of the partition
+     * @return the path of the file written by the partition
+     */
+    public static Path partPath(Path target, long number) {
+        return target.resolveSibling(target.getFileName() + PART + number);
+    }
+
+    /**
+     * Registers the file of a partition to be merged into the target.
+     *
+     * @param jobExecutionContext the execution context of the job
+     * @param target the path of the merged file
+     * @param number the number of the partition
+     */
+    public static void registerPart(ExecutionContext jobExecutionContext, Path target, long number) {
+        jobExecutionContext.putLong(partKeyPrefix(target) + number, number);
+    }
+
+    private static String partKeyPrefix(Path target) {
+        return PART_KEY + target.toAbsolutePath().normalize() + PART;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        StepExecution stepExecution = contribution.getStepExecution();
+        List<Path> parts = parts(stepExecution.getJobExecution().getExecutionContext());
+
+        // restarted after the move: only the partition files are left to delete
+        if (stepExecution.getExecutionContext().containsKey(MERGED_KEY)) {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+            return RepeatStatus.FINISHED;
+        }
+
+        Path merging = target.resolveSibling(target.getFileName() + ".merging");
+
+        try (FileChannel out = FileChannel.open(merging, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Path part : parts) {
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+            out.force(false);
+        }
+
+        Files.move(merging, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        stepExecution.getExecutionContext().putString(MERGED_KEY, target.toString());
+        for (Path part : parts) {
+            Files.delete(part);
+        }
+
+        contribution.incrementWriteCount(parts.size());
+        return RepeatStatus.FINISHED;
+    }
+
+    private List<Path> parts(ExecutionContext jobExecutionContext) {
+        String prefix = partKeyPrefix(target);
+
+        List<Long> numbers = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : jobExecutionContext.entrySet()) {
+            String key = entry.getKey();
+            if (key.startsWith(prefix) && isNumber(key.substring(prefix.length()))) {
+                numbers.add(((Number) entry.getValue()).longValue());
+            }
+        }
+        Collections.sort(numbers);
+
+        List<Path> parts = new ArrayList<>(numbers.size());
+        for (long number : numbers) {
+            parts.add(partPath(target, number));
+        }
+        return parts;
+    }
+
+    private static boolean isNumber(String suffix) {
+        int start = suffix.startsWith("-") ? 1 : 0;
+        if (suffix.length() == start) {
+            return false;
+        }
+        for (int i = start; i < suffix.length(); i++) {
+            if (!Character.isDigit(suffix.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,243 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the lines of a file that start within a byte range, as assigned by a
+ * {@link FileRangePartitioner}, mapping each one with a {@link LineMapper}. The
+ * file is read through a {@link FileChannel} into a reusable buffer, from the
+ * start of the range only. Lines end with <code>\n</code> or
+ * <code>\r\n</code>; empty lines are skipped.
+ * <p>
+ * On restart, the lines already read are skipped without being mapped.
+ *
+ * @param <T> the type of the items
+ */
+public class FileRangeItemReader<T> extends AbstractItemCountingItemStreamItemReader<T> {
+
+    private Path path;
+
+    private long startOffset;
+
+    private Long endOffset;
+
+    private LineMapper<T> lineMapper;
+
+    private Charset encoding = StandardCharsets.UTF_8;
+
+    private int linesToSkip;
+
+    private int bufferSize = 1024 * 1024;
+
+    private FileChannel channel;
+
+    private ByteBuffer buffer;
+
+    private long bufferOffset;
+
+    private long end;
+
+    private int lineNumber;
+
+    public FileRangeItemReader() {
+        setName("fileRangeItemReader");
+    }
+
+    /**
+     * The file to read.
+     *
+     * @param path the input file
+     */
+    public void setPath(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * The offset of the first line to read. Defaults to 0.
+     *
+     * @param startOffset the offset where the range starts
+     */
+    public void setStartOffset(long startOffset) {
+        this.startOffset = startOffset;
+    }
+
+    /**
+     * The offset after the range: lines starting at or after it are not read.
+     * Defaults to the end of the file.
+     *
+     * @param endOffset the offset where the range ends
+     */
+    public void setEndOffset(Long endOffset) {
+        this.endOffset = endOffset;
+    }
+
+    /**
+     * Maps each line to an item.
+     *
+     * @param lineMapper the {@link LineMapper}
+     */
+    public void setLineMapper(LineMapper<T> lineMapper) {
+        this.lineMapper = lineMapper;
+    }
+
+    /**
+     * The encoding of the file. Defaults to UTF-8.
+     *
+     * @param encoding the {@link Charset} of the file
+     */
+    public void setEncoding(Charset encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * The number of header lines at the start of the file, skipped by the range
+     * starting at offset 0.
+     *
+     * @param linesToSkip the number of header lines
+     */
+    public void setLinesToSkip(int linesToSkip) {
+        this.linesToSkip = linesToSkip;
+    }
+
+    /**
+     * The size of the read buffer, grown for longer lines. Defaults to 1 MiB.
+     *
+     * @param bufferSize the size of the buffer in bytes
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        Assert.notNull(path, "A path is required");
+        Assert.notNull(lineMapper, "A LineMapper is required");
+
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        end = endOffset != null ? Math.min(endOffset, channel.size()) : channel.size();
+
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear().flip();
+        bufferOffset = startOffset;
+        lineNumber = 0;
+
+        int skipped = 0;
+        while (startOffset == 0 && skipped < linesToSkip && nextLine() != null) {
+            skipped++;
+        }
+    }
+
+    @Override
+    protected T doRead() throws Exception {
+        String line = nextLine();
+        if (line == null) {
+            return null;
+        }
+
+        try {
+            return lineMapper.mapLine(line, lineNumber);
+        }
+        catch (Exception e) {
+            throw new FlatFileParseException("Parsing error at line " + lineNumber + " of the range of " + path +
+                    " starting at " + startOffset + ", input=[" + line + "]", e, line, lineNumber);
+        }
+    }
+
+    @Override
+    protected void jumpToItem(int itemIndex) throws Exception {
+        int skipped = 0;
+        while (skipped < itemIndex && nextLine() != null) {
+            skipped++;
+        }
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * @return the next non empty line starting before the end of the range, or
+     * null
+     */
+    private String nextLine() throws Exception {
+        while (true) {
+            long lineStart = bufferOffset + buffer.position();
+            if (lineStart >= end) {
+                return null;
+            }
+
+            int newLine = indexOfNewLine();
+            while (newLine < 0) {
+                if (!fill()) {
+                    break;
+                }
+                newLine = indexOfNewLine();
+            }
+
+            int lineEnd = newLine >= 0 ? newLine : buffer.limit();
+            if (lineEnd == buffer.position() && newLine < 0) {
+                return null;
+            }
+
+            int length = lineEnd - buffer.position();
+            if (length > 0 && buffer.get(lineEnd - 1) == '\r') {
+                length--;
+            }
+
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            buffer.position(newLine >= 0 ? newLine + 1 : lineEnd);
+            lineNumber++;
+
+            if (length > 0) {
+                return new String(bytes, encoding);
+            }
+        }
+    }
+
+    private int indexOfNewLine() {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the unread bytes to the start of the buffer and reads more after
+     * them, growing the buffer if it is full.
+     *
+     * @return false at the end of the file
+     */
+    private boolean fill() throws Exception {
+        bufferOffset += buffer.position();
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+
+        int read = channel.read(buffer, bufferOffset + buffer.position());
+        buffer.flip();
+        return read > 0;
+    }
+}
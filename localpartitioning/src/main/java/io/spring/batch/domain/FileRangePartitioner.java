@@ -0,0 +1,84 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Splits a line oriented file (CSV, JSON Lines...) into byte ranges of about the
+ * same size, each starting at the beginning of a line. Each partition gets
+ * <code>startOffset</code> (inclusive) and <code>endOffset</code> (exclusive)
+ * for a {@link FileRangeItemReader}, which reads the lines starting in its
+ * range, and its length as <code>partitionSize</code>.
+ */
+public class FileRangePartitioner implements Partitioner {
+
+    private Path path;
+
+    /**
+     * The file to split.
+     *
+     * @param path the input file
+     */
+    public void setPath(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> result = new HashMap<>();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long targetSize = size / gridSize + 1;
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+            long start = 0;
+            while (start < size) {
+                long end = start + targetSize < size ? nextLine(channel, start + targetSize, buffer) : size;
+
+                ExecutionContext value = new ExecutionContext();
+                value.putLong("startOffset", start);
+                value.putLong("endOffset", end);
+                value.putLong("partitionSize", end - start);
+                result.put("partition" + result.size(), value);
+
+                start = end;
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Unable to split " + path, e);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the offset of the first line starting at or after
+     * <code>position</code>, the size of the file if there is none
+     */
+    private static long nextLine(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        long offset = position - 1;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package io.spring.batch.domain;
+
+/**
+ * Estimates the memory an item takes, for buffers bounded in bytes rather than
+ * in items, such as the one of a {@link PrefetchingItemReader}.
+ *
+ * @param <T> the type of the items
+ */
+public interface ItemSizeEstimator<T> {
+
+    /**
+     * @param item an item
+     * @return an estimate of the bytes retained by the item
+     */
+    long estimateSize(T item);
+}
@@ -0,0 +1,227 @@
+package io.spring.batch.domain;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes items as JSON Lines, one JSON document per line, serialized by a
+ * {@link JsonGenerator} straight into a direct buffer that is written to a
+ * {@link FileChannel} when full and at the end of every chunk. No String is
+ * built per item and the buffer is allocated once per writer.
+ * <p>
+ * The file position after the last chunk is saved in the execution context; a
+ * restart truncates the file back to it.
+ *
+ * @param <T> the type of the items
+ */
+public class JsonLinesItemWriter<T> extends ItemStreamSupport implements ItemStreamWriter<T>, InitializingBean {
+
+    /**
+     * Writes one item as a JSON value to a generator.
+     *
+     * @param <T> the type of the items
+     */
+    @FunctionalInterface
+    public interface ItemSerializer<T> {
+
+        void write(T item, JsonGenerator generator) throws IOException;
+    }
+
+    private static final String POSITION = "position";
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private Path path;
+
+    private ItemSerializer<T> serializer;
+
+    private int bufferSize = 1024 * 1024;
+
+    private boolean saveState = true;
+
+    private FileChannel channel;
+
+    private ByteBuffer buffer;
+
+    private JsonGenerator generator;
+
+    public JsonLinesItemWriter() {
+        setName("jsonLinesItemWriter");
+    }
+
+    /**
+     * The file to write. Missing parent directories are created.
+     *
+     * @param path the output file
+     */
+    public void setPath(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Writes each item to the generator, for example
+     * <code>customerLineAggregator::write</code>.
+     *
+     * @param serializer the {@link ItemSerializer}
+     */
+    public void setSerializer(ItemSerializer<T> serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * The size of the direct buffer the JSON is written to. Defaults to 1 MiB.
+     *
+     * @param bufferSize the size of the buffer in bytes
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Whether the file position is saved for restart. Defaults to true.
+     *
+     * @param saveState false to start over on restart
+     */
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(path, "A path is required");
+        Assert.notNull(serializer, "A serializer is required");
+        Assert.isTrue(bufferSize > 0, "The buffer size must be positive");
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        String key = getExecutionContextKey(POSITION);
+        long position = saveState && executionContext.containsKey(key) ? executionContext.getLong(key) : 0;
+
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.truncate(position);
+            channel.position(position);
+
+            if (buffer == null) {
+                buffer = ByteBuffer.allocateDirect(bufferSize);
+            }
+            buffer.clear();
+
+            generator = jsonFactory.createGenerator(new ChannelOutputStream(), JsonEncoding.UTF8);
+            generator.setRootValueSeparator(null);
+        }
+        catch (IOException e) {
+            throw new ItemStreamException("Unable to open " + path, e);
+        }
+    }
+
+    @Override
+    public void write(List<? extends T> items) throws Exception {
+        for (T item : items) {
+            serializer.write(item, generator);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (saveState && channel != null) {
+            try {
+                executionContext.putLong(getExecutionContextKey(POSITION), channel.position());
+            }
+            catch (IOException e) {
+                throw new ItemStreamException("Unable to read the position in " + path, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        try {
+            if (generator != null) {
+                generator.close();
+            }
+        }
+        catch (IOException e) {
+            throw new ItemStreamException("Unable to close " + path, e);
+        }
+        finally {
+            generator = null;
+            channel = null;
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Copies what the generator writes into the buffer, writing the buffer to the
+     * channel when it is full or flushed.
+     */
+    private class ChannelOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int count = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, count);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            }
+            finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.file.transform.LineAggregator;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the lines produced by a {@link LineAggregator} as gzip, compressing on
+ * several threads pigz-style: the lines are cut into blocks of about
+ * {@link #setBlockSize(int) blockSize} bytes and every block is compressed on
+ * the task executor into an independent gzip member. The members are written
+ * to the file in order, so the file is a single valid gzip stream as read by
+ * <code>gunzip</code> or {@link java.util.zip.GZIPInputStream}.
+ * <p>
+ * At most {@link #setMaxPendingBlocks(int) maxPendingBlocks} blocks are held in
+ * memory. On {@link #update(ExecutionContext)}, that is at the end of every
+ * chunk, the partial block is compressed, all members are written and the file
+ * position is saved; a restart truncates the file back to it.
+ * <p>
+ * Every commit therefore closes a short block, a gzip member of its own with its
+ * header, trailer and cold compression dictionary, and waits for the blocks of
+ * the chunk. Size the chunks of the step to hold many blocks, for example 5000
+ * lines of about 250 bytes for blocks of 64 KiB: the blocks of a chunk are then
+ * compressed in parallel and the short block is one member out of about twenty.
+ * With a task executor shared by several writers, bound the tasks it queues, as
+ * {@link BoundedTaskExecutor} does.
+ *
+ * @param <T> the type of the items
+ */
+public class ParallelGzipItemWriter<T> extends ItemStreamSupport implements ItemStreamWriter<T>, InitializingBean {
+
+    private static final String POSITION = "position";
+
+    private Path path;
+
+    private LineAggregator<T> lineAggregator;
+
+    private AsyncTaskExecutor taskExecutor;
+
+    private int blockSize = 128 * 1024;
+
+    private int maxPendingBlocks = 2 * Runtime.getRuntime().availableProcessors();
+
+    private boolean saveState = true;
+
+    private FileChannel channel;
+
+    private Block block;
+
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    public ParallelGzipItemWriter() {
+        setName("parallelGzipItemWriter");
+    }
+
+    /**
+     * The file to write. Missing parent directories are created.
+     *
+     * @param path the output file
+     */
+    public void setPath(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Turns each item into a line, written with a trailing line feed.
+     *
+     * @param lineAggregator the {@link LineAggregator}
+     */
+    public void setLineAggregator(LineAggregator<T> lineAggregator) {
+        this.lineAggregator = lineAggregator;
+    }
+
+    /**
+     * The executor the blocks are compressed on. Its size bounds the number of
+     * blocks compressed at once.
+     *
+     * @param taskExecutor an {@link AsyncTaskExecutor}
+     */
+    public void setTaskExecutor(AsyncTaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * The number of uncompressed bytes after which a block is compressed. Defaults
+     * to 128 KiB.
+     *
+     * @param blockSize the block size in bytes
+     */
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * The number of blocks being compressed or waiting to be written after which
+     * the writer waits for the oldest one. Defaults to twice the number of
+     * processors.
+     *
+     * @param maxPendingBlocks the maximum number of pending blocks
+     */
+    public void setMaxPendingBlocks(int maxPendingBlocks) {
+        this.maxPendingBlocks = maxPendingBlocks;
+    }
+
+    /**
+     * Whether the file position is saved for restart. Defaults to true.
+     *
+     * @param saveState false to start over on restart
+     */
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(path, "A path is required");
+        Assert.notNull(lineAggregator, "A LineAggregator is required");
+        Assert.notNull(taskExecutor, "A TaskExecutor is required");
+        Assert.isTrue(blockSize > 0, "The block size must be positive");
+        Assert.isTrue(maxPendingBlocks > 0, "The maximum number of pending blocks must be positive");
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        String key = getExecutionContextKey(POSITION);
+        long position = saveState && executionContext.containsKey(key) ? executionContext.getLong(key) : 0;
+
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.truncate(position);
+            channel.position(position);
+        }
+        catch (IOException e) {
+            throw new ItemStreamException("Unable to open " + path, e);
+        }
+
+        block = new Block(blockSize);
+        pending.clear();
+    }
+
+    @Override
+    public void write(List<? extends T> items) throws Exception {
+        for (T item : items) {
+            byte[] line = lineAggregator.aggregate(item).getBytes(StandardCharsets.UTF_8);
+            block.write(line, 0, line.length);
+            block.write('\n');
+
+            if (block.size() >= blockSize) {
+                submit();
+            }
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            flush();
+            if (saveState) {
+                executionContext.putLong(getExecutionContextKey(POSITION), channel.position());
+            }
+        }
+        catch (IOException e) {
+            throw new ItemStreamException("Unable to write to " + path, e);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            flush();
+            channel.close();
+        }
+        catch (IOException e) {
+            throw new ItemStreamException("Unable to close " + path, e);
+        }
+        finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(false);
+            }
+            pending.clear();
+            channel = null;
+            block = null;
+        }
+    }
+
+    private void submit() throws IOException {
+        Block full = block;
+        block = new Block(blockSize);
+
+        if (pending.size() >= maxPendingBlocks) {
+            writeMember(pending.removeFirst());
+        }
+        pending.addLast(taskExecutor.submit(full::compress));
+
+        while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+            writeMember(pending.removeFirst());
+        }
+    }
+
+    private void flush() throws IOException {
+        if (block.size() > 0) {
+            submit();
+        }
+        while (!pending.isEmpty()) {
+            writeMember(pending.removeFirst());
+        }
+    }
+
+    private void writeMember(Future<byte[]> future) throws IOException {
+        byte[] member;
+        try {
+            member = future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing a block of " + path, e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException("Unable to compress a block of " + path, e.getCause());
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(member);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * The uncompressed lines of a block, compressed into a gzip member.
+     */
+    private static class Block extends ByteArrayOutputStream {
+
+        Block(int blockSize) {
+            super(blockSize + blockSize / 8);
+        }
+
+        byte[] compress() throws IOException {
+            ByteArrayOutputStream member = new ByteArrayOutputStream(count / 3 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(member, 64 * 1024)) {
+                gzip.write(buf, 0, count);
+            }
+            return member.toByteArray();
+        }
+    }
+}
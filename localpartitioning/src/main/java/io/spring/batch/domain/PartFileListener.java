@@ -0,0 +1,55 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.util.Assert;
+
+import java.nio.file.Path;
+
+/**
+ * Records the file written by a partition in the job execution context, so the
+ * {@link FileMergeTasklet} of the same job merges that file, and only the files
+ * of the partitions of this job. It must be step scoped, the number of its
+ * partition being a property of the step execution.
+ * <p>
+ * The job execution context is carried over on restart: the files of partitions
+ * completed before a failure are still merged although their steps do not run
+ * again.
+ */
+public class PartFileListener implements StepExecutionListener {
+
+    private Path target;
+
+    private Long number;
+
+    /**
+     * The merged file.
+     *
+     * @param target the path of the merged file
+     */
+    public void setTarget(Path target) {
+        this.target = target;
+    }
+
+    /**
+     * The number of the partition, as given to {@link FileMergeTasklet#partPath}.
+     *
+     * @param number the number of the partition
+     */
+    public void setNumber(Long number) {
+        this.number = number;
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        Assert.state(target != null && number != null, "A target and a partition number are required");
+
+        FileMergeTasklet.registerPart(stepExecution.getJobExecution().getExecutionContext(), target, number);
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        return null;
+    }
+}
@@ -0,0 +1,322 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Tasklet} running a chunk oriented step as a pipeline of three stages,
+ * so the next chunk is read and the current one processed while the previous
+ * one is written. The reader and processor stages each run in a thread of their
+ * own and hand their chunks over through bounded queues of
+ * {@link #setQueueCapacity(int) queueCapacity} chunks; each execution of the
+ * tasklet writes the next chunk in the transaction of the step, so chunks are
+ * committed one by one in the order they were read.
+ * <p>
+ * The tasklet must be registered as a stream of its step, and its reader must
+ * not: after reading a chunk, the reader stage takes a snapshot of the reader
+ * state, which is saved in the step execution context with the chunk it comes
+ * with. A restarted step reads again from the end of the last committed chunk,
+ * whatever was read ahead. A failure in a stage fails the execution writing the
+ * chunk it happened in.
+ *
+ * @param <I> the type of the items read
+ * @param <O> the type of the items written
+ */
+public class PipelinedChunkTasklet<I, O> implements Tasklet, ItemStream, InitializingBean {
+
+    private static final long POLL_MILLIS = 100;
+
+    private ItemReader<? extends I> itemReader;
+
+    private ItemProcessor<? super I, ? extends O> itemProcessor;
+
+    private ItemWriter<? super O> itemWriter;
+
+    private int chunkSize = 1000;
+
+    private int queueCapacity = 1;
+
+    private TaskExecutor taskExecutor;
+
+    private BlockingQueue<PipelinedChunk<I>> readChunks;
+
+    private BlockingQueue<PipelinedChunk<O>> processedChunks;
+
+    private CountDownLatch stages;
+
+    private volatile boolean running;
+
+    private ExecutionContext writtenReaderState;
+
+    /**
+     * The reader of the items, not registered as a stream of the step.
+     *
+     * @param itemReader an {@link ItemReader}
+     */
+    public void setItemReader(ItemReader<? extends I> itemReader) {
+        this.itemReader = itemReader;
+    }
+
+    /**
+     * The processor of the items. Defaults to none, the items read being written
+     * as they are.
+     *
+     * @param itemProcessor an {@link ItemProcessor}
+     */
+    public void setItemProcessor(ItemProcessor<? super I, ? extends O> itemProcessor) {
+        this.itemProcessor = itemProcessor;
+    }
+
+    /**
+     * The writer of the items.
+     *
+     * @param itemWriter an {@link ItemWriter}
+     */
+    public void setItemWriter(ItemWriter<? super O> itemWriter) {
+        this.itemWriter = itemWriter;
+    }
+
+    /**
+     * The number of items read per chunk, and committed together. Defaults to
+     * 1000.
+     *
+     * @param chunkSize the size of the chunks
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * The number of chunks waiting between two stages. Defaults to 1.
+     *
+     * @param queueCapacity the capacity of the hand-off queues
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * The executor running the reader and processor stages, two threads per
+     * step execution for as long as it runs. It must have two threads for each
+     * partition run at once, for example from
+     * {@link ConcurrencyPlanner#taskExecutor(String, int)}, and the reader stage
+     * queries on a connection of its own.
+     *
+     * @param taskExecutor a {@link TaskExecutor}
+     */
+    public void setTaskExecutor(TaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(itemReader, "An ItemReader is required");
+        Assert.notNull(itemWriter, "An ItemWriter is required");
+        Assert.notNull(taskExecutor, "A TaskExecutor is required");
+        Assert.isTrue(chunkSize > 0, "The chunk size must be positive");
+        Assert.isTrue(queueCapacity > 0, "The queue capacity must be positive");
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        if (itemReader instanceof ItemStream) {
+            ((ItemStream) itemReader).open(executionContext);
+        }
+
+        StepContext stepContext = StepSynchronizationManager.getContext();
+        StepExecution stepExecution = stepContext != null ? stepContext.getStepExecution() : null;
+
+        readChunks = new ArrayBlockingQueue<>(queueCapacity);
+        processedChunks = new ArrayBlockingQueue<>(queueCapacity);
+        stages = new CountDownLatch(2);
+        writtenReaderState = null;
+        running = true;
+
+        taskExecutor.execute(() -> runStage(stepExecution, this::read));
+        taskExecutor.execute(() -> runStage(stepExecution, this::process));
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        PipelinedChunk<O> chunk = processedChunks.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        while (chunk == null) {
+            boolean stopped = stages.getCount() == 0;
+            chunk = processedChunks.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (chunk == null && stopped) {
+                throw new IllegalStateException("The reader and processor stages stopped before the last chunk");
+            }
+        }
+        if (chunk.failure != null) {
+            throw chunk.failure;
+        }
+
+        for (int i = 0; i < chunk.readCount; i++) {
+            contribution.incrementReadCount();
+        }
+        contribution.incrementFilterCount(chunk.readCount - chunk.items.size());
+        if (!chunk.items.isEmpty()) {
+            itemWriter.write(chunk.items);
+            contribution.incrementWriteCount(chunk.items.size());
+        }
+
+        writtenReaderState = chunk.readerState;
+        return chunk.last ? RepeatStatus.FINISHED : RepeatStatus.CONTINUABLE;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        // the state of the reader at the end of the chunk committed with this update
+        if (writtenReaderState != null) {
+            for (Map.Entry<String, Object> entry : writtenReaderState.entrySet()) {
+                executionContext.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        running = false;
+        try {
+            if (stages != null) {
+                stages.await();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            if (itemReader instanceof ItemStream) {
+                ((ItemStream) itemReader).close();
+            }
+        }
+    }
+
+    private void runStage(StepExecution stepExecution, Stage stage) {
+        // the reader and processor may be step scoped
+        if (stepExecution != null) {
+            StepSynchronizationManager.register(stepExecution);
+        }
+        try {
+            stage.run();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            if (stepExecution != null) {
+                StepSynchronizationManager.close();
+            }
+            stages.countDown();
+        }
+    }
+
+    private void read() throws InterruptedException {
+        boolean last = false;
+        while (running && !last) {
+            PipelinedChunk<I> chunk = new PipelinedChunk<>();
+            try {
+                while (chunk.items.size() < chunkSize) {
+                    I item = itemReader.read();
+                    if (item == null) {
+                        last = true;
+                        break;
+                    }
+                    chunk.items.add(item);
+                }
+                chunk.readCount = chunk.items.size();
+                chunk.last = last;
+
+                chunk.readerState = new ExecutionContext();
+                if (itemReader instanceof ItemStream) {
+                    ((ItemStream) itemReader).update(chunk.readerState);
+                }
+            }
+            catch (Exception e) {
+                chunk.failure = e;
+                last = true;
+            }
+            handOver(readChunks, chunk);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void process() throws InterruptedException {
+        boolean last = false;
+        while (running && !last) {
+            PipelinedChunk<I> chunk = readChunks.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (chunk == null) {
+                continue;
+            }
+
+            PipelinedChunk<O> processed = new PipelinedChunk<>();
+            processed.readCount = chunk.readCount;
+            processed.readerState = chunk.readerState;
+            processed.failure = chunk.failure;
+            processed.last = last = chunk.last;
+            try {
+                for (int i = 0; i < chunk.items.size() && processed.failure == null; i++) {
+                    O item = itemProcessor != null ? itemProcessor.process(chunk.items.get(i)) : (O) chunk.items.get(i);
+                    if (item != null) {
+                        processed.items.add(item);
+                    }
+                }
+            }
+            catch (Exception e) {
+                processed.failure = e;
+                processed.last = last = true;
+            }
+            handOver(processedChunks, processed);
+        }
+    }
+
+    /**
+     * Waits for room in the next queue, unless the step is closed.
+     */
+    private <T> void handOver(BlockingQueue<PipelinedChunk<T>> queue, PipelinedChunk<T> chunk) throws InterruptedException {
+        while (running) {
+            if (queue.offer(chunk, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    private interface Stage {
+
+        void run() throws InterruptedException;
+    }
+
+    private static class PipelinedChunk<T> {
+
+        private final List<T> items = new ArrayList<>();
+
+        private int readCount;
+
+        private ExecutionContext readerState;
+
+        private Exception failure;
+
+        private boolean last;
+    }
+}
@@ -0,0 +1,349 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.util.Assert;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decorates a paging {@link ItemReader}, such as a step scoped
+ * <code>JdbcPagingItemReader</code>, to read its next pages on a background
+ * thread while the step consumes the current one, so the queries of the reader
+ * no longer add up to the time of the step. Up to
+ * {@link #setMaxPages(int) maxPages} pages of {@link #setPageSize(int) pageSize}
+ * items are buffered, as long as their {@link ItemSizeEstimator estimated}
+ * size stays under {@link #setMaxBytes(long) maxBytes}; a single page larger
+ * than that is still read when the buffer is empty. The pages of an
+ * {@link AdaptivePagingItemReader} are prefetched whole, with the page size it
+ * chose for each, instead of being cut into pages of a fixed size.
+ * <p>
+ * The delegate is only used by the background thread once opened. Before each
+ * page, that thread takes a snapshot of the state of the delegate, and the
+ * state saved with a chunk is the snapshot of the page being consumed plus the
+ * number of its items already read, under
+ * <code>&lt;name&gt;.page.offset</code>. On restart the delegate is opened
+ * at the start of that page and the items already read are skipped, whatever
+ * was prefetched.
+ *
+ * @param <T> the type of the items
+ */
+public class PrefetchingItemReader<T> implements ItemStreamReader<T> {
+
+    private static final long POLL_MILLIS = 100;
+
+    private ItemReader<T> delegate;
+
+    private int pageSize = 1000;
+
+    private int maxPages = 2;
+
+    private long maxBytes = 64 * 1024 * 1024;
+
+    private ItemSizeEstimator<? super T> itemSizeEstimator = item -> 0;
+
+    private TaskExecutor taskExecutor;
+
+    private boolean saveState = true;
+
+    private String name = "prefetchingItemReader";
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Deque<Page<T>> buffer = new ArrayDeque<>();
+
+    private long bufferedBytes;
+
+    private CountDownLatch prefetching;
+
+    private volatile boolean running;
+
+    private Page<T> current;
+
+    private int offset;
+
+    /**
+     * The reader whose pages are prefetched.
+     *
+     * @param delegate the delegate {@link ItemReader}
+     */
+    public void setDelegate(ItemReader<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * The number of items of a page, best matching the page size of the
+     * delegate. Defaults to 1000, and not used for an
+     * {@link AdaptivePagingItemReader}.
+     *
+     * @param pageSize the number of items per page
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * The number of pages read ahead of the one consumed. Defaults to 2.
+     *
+     * @param maxPages the maximum number of buffered pages
+     */
+    public void setMaxPages(int maxPages) {
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * The estimated size the buffered pages may take. Defaults to 64 MiB.
+     *
+     * @param maxBytes the maximum size of the buffer in bytes
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Estimates the size of the items. Defaults to none, the buffer being only
+     * bounded by {@link #setMaxPages(int) maxPages}.
+     *
+     * @param itemSizeEstimator an {@link ItemSizeEstimator}
+     */
+    public void setItemSizeEstimator(ItemSizeEstimator<? super T> itemSizeEstimator) {
+        this.itemSizeEstimator = itemSizeEstimator;
+    }
+
+    /**
+     * The executor running the background thread of each opened reader, for as
+     * long as it is open. It must have a thread for each partition run at once,
+     * for example from {@link ConcurrencyPlanner#taskExecutor(String, int)}, and
+     * that thread queries on a connection of its own.
+     *
+     * @param taskExecutor a {@link TaskExecutor}
+     */
+    public void setTaskExecutor(TaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Whether to save the state of the delegate for restart. Defaults to true;
+     * set it to false when the delegate does not save its state.
+     *
+     * @param saveState true to save the position of the reader
+     */
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    /**
+     * The prefix of the keys in the execution context.
+     *
+     * @param name the name of the reader
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        Assert.notNull(delegate, "A delegate ItemReader is required");
+        Assert.notNull(taskExecutor, "A TaskExecutor is required");
+        Assert.isTrue(pageSize > 0 && maxPages > 0, "The page size and the number of pages must be positive");
+
+        if (delegate instanceof ItemStream) {
+            ((ItemStream) delegate).open(executionContext);
+        }
+        int skip = saveState ? executionContext.getInt(name + ".page.offset", 0) : 0;
+
+        StepContext stepContext = StepSynchronizationManager.getContext();
+        StepExecution stepExecution = stepContext != null ? stepContext.getStepExecution() : null;
+
+        buffer.clear();
+        bufferedBytes = 0;
+        current = null;
+        offset = 0;
+        prefetching = new CountDownLatch(1);
+        running = true;
+
+        taskExecutor.execute(() -> {
+            // the delegate may be step scoped
+            if (stepExecution != null) {
+                StepSynchronizationManager.register(stepExecution);
+            }
+            try {
+                prefetch(skip);
+            }
+            finally {
+                if (stepExecution != null) {
+                    StepSynchronizationManager.close();
+                }
+                prefetching.countDown();
+            }
+        });
+    }
+
+    @Override
+    public T read() throws Exception {
+        while (current == null || offset == current.items.size()) {
+            if (current != null && current.last) {
+                return null;
+            }
+            current = take();
+            offset = 0;
+            if (current.failure != null) {
+                throw current.failure;
+            }
+        }
+        return current.items.get(offset++);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (saveState && current != null) {
+            for (Map.Entry<String, Object> entry : current.delegateState.entrySet()) {
+                executionContext.put(entry.getKey(), entry.getValue());
+            }
+            executionContext.putInt(name + ".page.offset", current.skipped + offset);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        running = false;
+        lock.lock();
+        try {
+            notFull.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+
+        try {
+            if (prefetching != null) {
+                prefetching.await();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            if (delegate instanceof ItemStream) {
+                ((ItemStream) delegate).close();
+            }
+        }
+    }
+
+    private void prefetch(int skip) {
+        boolean last = false;
+        while (running && !last) {
+            Page<T> page = new Page<>();
+            try {
+                if (saveState && delegate instanceof ItemStream) {
+                    ((ItemStream) delegate).update(page.delegateState);
+                }
+                // one page of the delegate, whose first items may have been read before a restart
+                int size = delegate instanceof AdaptivePagingItemReader ?
+                        ((AdaptivePagingItemReader<?>) delegate).getPageSize() : pageSize;
+                while (page.skipped < skip && delegate.read() != null) {
+                    page.skipped++;
+                }
+                skip = 0;
+
+                while (page.skipped + page.items.size() < size) {
+                    T item = delegate.read();
+                    if (item == null) {
+                        last = true;
+                        break;
+                    }
+                    page.items.add(item);
+                    page.bytes += itemSizeEstimator.estimateSize(item);
+                }
+            }
+            catch (Exception e) {
+                page.failure = e;
+                last = true;
+            }
+            page.last = last;
+
+            if (!put(page)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false if the reader was closed while waiting for room
+     */
+    private boolean put(Page<T> page) {
+        lock.lock();
+        try {
+            while (!buffer.isEmpty() && (buffer.size() >= maxPages || bufferedBytes + page.bytes > maxBytes)) {
+                if (!running) {
+                    return false;
+                }
+                notFull.await(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            buffer.addLast(page);
+            bufferedBytes += page.bytes;
+            notEmpty.signal();
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private Page<T> take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (buffer.isEmpty()) {
+                if (prefetching.getCount() == 0) {
+                    throw new IllegalStateException("The prefetching thread stopped before the last page");
+                }
+                notEmpty.await(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            Page<T> page = buffer.removeFirst();
+            bufferedBytes -= page.bytes;
+            notFull.signal();
+            return page;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Page<T> {
+
+        private final List<T> items = new ArrayList<>();
+
+        private final ExecutionContext delegateState = new ExecutionContext();
+
+        private int skipped;
+
+        private long bytes;
+
+        private Exception failure;
+
+        private boolean last;
+    }
+}
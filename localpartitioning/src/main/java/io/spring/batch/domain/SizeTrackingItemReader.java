@@ -0,0 +1,90 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+/**
+ * Decorates the {@link ItemReader} of a step to count the
+ * {@link ItemSizeEstimator estimated} size of the items it reads in the chunk of
+ * a {@link ByteBudgetCompletionPolicy}. The delegate is opened, updated and
+ * closed with the decorator when it is an {@link ItemStream}.
+ *
+ * @param <T> the type of the items
+ */
+public class SizeTrackingItemReader<T> implements ItemStreamReader<T>, InitializingBean {
+
+    private ItemReader<T> delegate;
+
+    private ItemSizeEstimator<? super T> itemSizeEstimator;
+
+    private ByteBudgetCompletionPolicy completionPolicy;
+
+    /**
+     * The reader of the items.
+     *
+     * @param delegate the delegate {@link ItemReader}
+     */
+    public void setDelegate(ItemReader<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Estimates the size of the items.
+     *
+     * @param itemSizeEstimator an {@link ItemSizeEstimator}
+     */
+    public void setItemSizeEstimator(ItemSizeEstimator<? super T> itemSizeEstimator) {
+        this.itemSizeEstimator = itemSizeEstimator;
+    }
+
+    /**
+     * The completion policy of the step, counting the size of its chunks.
+     *
+     * @param completionPolicy a {@link ByteBudgetCompletionPolicy}
+     */
+    public void setCompletionPolicy(ByteBudgetCompletionPolicy completionPolicy) {
+        this.completionPolicy = completionPolicy;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(delegate, "A delegate ItemReader is required");
+        Assert.notNull(itemSizeEstimator, "An ItemSizeEstimator is required");
+        Assert.notNull(completionPolicy, "A ByteBudgetCompletionPolicy is required");
+    }
+
+    @Override
+    public T read() throws Exception {
+        T item = delegate.read();
+        if (item != null) {
+            completionPolicy.addBytes(itemSizeEstimator.estimateSize(item));
+        }
+        return item;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        if (delegate instanceof ItemStream) {
+            ((ItemStream) delegate).open(executionContext);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (delegate instanceof ItemStream) {
+            ((ItemStream) delegate).update(executionContext);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (delegate instanceof ItemStream) {
+            ((ItemStream) delegate).close();
+        }
+    }
+}
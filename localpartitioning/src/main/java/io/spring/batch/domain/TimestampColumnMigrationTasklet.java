@@ -0,0 +1,166 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Locale;
+
+/**
+ * Converts a text column holding timestamps to a native <code>TIMESTAMP</code>
+ * column in place, in three phases run as separate steps:
+ * <ol>
+ * <li>{@link Phase#PREPARE} adds a <code>&lt;column&gt;_ts TIMESTAMP</code>
+ * column next to the text one</li>
+ * <li>{@link Phase#CONVERT} fills it for the key range of a partition, as
+ * produced by {@link ColumnRangePartitioner}</li>
+ * <li>{@link Phase#FINALIZE} drops the text column and renames the new one</li>
+ * </ol>
+ * Every phase looks at the current columns first and only does what is left, so
+ * a failed job can be restarted at any point and a table that already has a
+ * <code>TIMESTAMP</code> column is left alone.
+ */
+public class TimestampColumnMigrationTasklet implements Tasklet {
+
+    public enum Phase {
+        PREPARE, CONVERT, FINALIZE
+    }
+
+    private DataSource dataSource;
+
+    private JdbcOperations jdbcTemplate;
+
+    private String table;
+
+    private String column;
+
+    private String keyColumn;
+
+    private Phase phase;
+
+    /**
+     * The data source holding the table.
+     *
+     * @param dataSource a {@link DataSource}
+     */
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * The name of the table to migrate.
+     *
+     * @param table the name of the table
+     */
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    /**
+     * The name of the text column to convert.
+     *
+     * @param column the column name
+     */
+    public void setColumn(String column) {
+        this.column = column;
+    }
+
+    /**
+     * The column the partition ranges apply to, used by {@link Phase#CONVERT}.
+     *
+     * @param keyColumn the column name
+     */
+    public void setKeyColumn(String keyColumn) {
+        this.keyColumn = keyColumn;
+    }
+
+    /**
+     * The part of the migration this tasklet runs.
+     *
+     * @param phase the {@link Phase}
+     */
+    public void setPhase(Phase phase) {
+        this.phase = phase;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        String convertedColumn = column + "_ts";
+        boolean hasColumn = hasColumn(column);
+        boolean hasConvertedColumn = hasColumn(convertedColumn);
+
+        switch (phase) {
+            case PREPARE:
+                if (hasColumn && !hasConvertedColumn && !isTimestamp(column)) {
+                    jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN " + convertedColumn + " TIMESTAMP");
+                }
+                break;
+            case CONVERT:
+                if (hasConvertedColumn) {
+                    ExecutionContext executionContext = contribution.getStepExecution().getExecutionContext();
+                    int count = jdbcTemplate.update("UPDATE " + table + " SET " + convertedColumn + " = CAST(" + column +
+                                    " AS TIMESTAMP) WHERE " + keyColumn + " BETWEEN ? AND ? AND " + column +
+                                    " IS NOT NULL AND " + convertedColumn + " IS NULL",
+                            ((Number) executionContext.get("minValue")).longValue(),
+                            ((Number) executionContext.get("maxValue")).longValue());
+
+                    // through the contribution, so the counts are dropped if the step transaction rolls back
+                    for (int row = 0; row < count; row++) {
+                        contribution.incrementReadCount();
+                    }
+                    contribution.incrementWriteCount(count);
+                }
+                break;
+            case FINALIZE:
+                if (hasConvertedColumn) {
+                    if (hasColumn) {
+                        jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN " + column);
+                    }
+                    jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN " + convertedColumn + " RENAME TO " + column);
+                }
+                break;
+        }
+
+        return RepeatStatus.FINISHED;
+    }
+
+    private boolean hasColumn(String name) throws Exception {
+        return columnType(name) != null;
+    }
+
+    private boolean isTimestamp(String name) throws Exception {
+        Integer type = columnType(name);
+        return type != null && (type == Types.TIMESTAMP || type == Types.TIMESTAMP_WITH_TIMEZONE);
+    }
+
+    private Integer columnType(String name) throws Exception {
+        return JdbcUtils.extractDatabaseMetaData(dataSource, metaData -> {
+            String tableName = identifier(metaData, table);
+            String columnName = identifier(metaData, name);
+            try (ResultSet columns = metaData.getColumns(null, null, tableName, columnName)) {
+                return columns.next() ? columns.getInt("DATA_TYPE") : null;
+            }
+        });
+    }
+
+    private static String identifier(DatabaseMetaData metaData, String name) throws SQLException {
+        if (metaData.storesUpperCaseIdentifiers()) {
+            return name.toUpperCase(Locale.ROOT);
+        }
+        if (metaData.storesLowerCaseIdentifiers()) {
+            return name.toLowerCase(Locale.ROOT);
+        }
+        return name;
+    }
+}
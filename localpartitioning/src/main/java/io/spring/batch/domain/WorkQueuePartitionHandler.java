@@ -0,0 +1,48 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.partition.support.TaskExecutorPartitionHandler;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link TaskExecutorPartitionHandler} meant to run many more partitions than
+ * there are threads. The partitions are handed to the task executor largest
+ * first, so with a fixed size pool in front of a FIFO queue (a
+ * {@link org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor} with
+ * its default queue) every worker pulls the next biggest range as soon as it is
+ * done with its current one, and the step finishes in about total work divided
+ * by the number of workers instead of waiting on the slowest partition.
+ * <p>
+ * The size of a partition is read from the <code>partitionSize</code> key put in
+ * the execution context by {@link QuantileColumnRangePartitioner}, falling back
+ * to the width of the <code>minValue</code>/<code>maxValue</code> range.
+ */
+public class WorkQueuePartitionHandler extends TaskExecutorPartitionHandler {
+
+    @Override
+    protected Set<StepExecution> doHandle(StepExecution masterStepExecution,
+                                          Set<StepExecution> partitionStepExecutions) throws Exception {
+        List<StepExecution> queue = new ArrayList<>(partitionStepExecutions);
+        queue.sort(Comparator.comparingLong(WorkQueuePartitionHandler::estimateSize).reversed());
+
+        return super.doHandle(masterStepExecution, new LinkedHashSet<>(queue));
+    }
+
+    private static long estimateSize(StepExecution stepExecution) {
+        ExecutionContext executionContext = stepExecution.getExecutionContext();
+        if (executionContext.containsKey("partitionSize")) {
+            return ((Number) executionContext.get("partitionSize")).longValue();
+        }
+        if (executionContext.containsKey("minValue") && executionContext.containsKey("maxValue")) {
+            return ((Number) executionContext.get("maxValue")).longValue() -
+                    ((Number) executionContext.get("minValue")).longValue() + 1;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,17 @@
+DROP TABLE IF EXISTS customer;
+CREATE TABLE customer (
+                               id INT NOT NULL auto_increment,
+                               firstName VARCHAR(255) default NULL,
+                               lastName VARCHAR(255) default NULL,
+                               birthdate TIMESTAMP,
+                               PRIMARY KEY (id)
+);
+
+DROP TABLE IF EXISTS new_customer;
+CREATE TABLE new_customer (
+                          id INT NOT NULL auto_increment,
+                          firstName VARCHAR(255) default NULL,
+                          lastName VARCHAR(255) default NULL,
+                          birthdate TIMESTAMP,
+                          PRIMARY KEY (id)
+);
\ No newline at end of file
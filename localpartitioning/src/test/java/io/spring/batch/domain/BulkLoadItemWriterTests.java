@@ -0,0 +1,87 @@
+package io.spring.batch.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BulkLoadItemWriterTests {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private BulkLoadItemWriter<Customer> writer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE new_customer (id INT NOT NULL, firstName VARCHAR(255), " +
+                "lastName VARCHAR(255), birthdate TIMESTAMP, PRIMARY KEY (id))");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        writer = new BulkLoadItemWriter<>();
+        writer.setDataSource(dataSource);
+        writer.setTable("new_customer");
+        writer.setColumns("id, firstName, lastName, birthdate");
+        writer.setFieldExtractor(customer -> new Object[]{customer.getId(),
+                customer.getFirstName(),
+                customer.getLastName(),
+                customer.getBirthdate()});
+        writer.afterPropertiesSet();
+    }
+
+    @Test
+    void loadsEveryItemOfTheChunk() {
+        LocalDateTime birthdate = LocalDateTime.of(1970, 1, 2, 3, 4, 5);
+        List<Customer> chunk = Arrays.asList(new Customer(1, "Jane", "Doe", birthdate),
+                new Customer(2, "Jo, \"JJ\"", null, birthdate.plusDays(1)));
+
+        write(chunk, false);
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT * FROM new_customer ORDER BY id");
+        assertEquals(2, rows.size());
+        assertEquals("Jane", rows.get(0).get("FIRSTNAME"));
+        assertEquals("Doe", rows.get(0).get("LASTNAME"));
+        assertEquals(Timestamp.valueOf(birthdate), rows.get(0).get("BIRTHDATE"));
+        assertEquals("Jo, \"JJ\"", rows.get(1).get("FIRSTNAME"));
+        assertNull(rows.get(1).get("LASTNAME"));
+    }
+
+    @Test
+    void loadsInTheChunkTransaction() {
+        write(Arrays.asList(new Customer(1, "Jane", "Doe", LocalDateTime.of(1970, 1, 2, 3, 4))), true);
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM new_customer", Integer.class));
+    }
+
+    private void write(List<Customer> chunk, boolean rollback) {
+        transactionTemplate.execute(status -> {
+            try {
+                writer.write(chunk);
+            }
+            catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            if (rollback) {
+                status.setRollbackOnly();
+            }
+            return null;
+        });
+    }
+}
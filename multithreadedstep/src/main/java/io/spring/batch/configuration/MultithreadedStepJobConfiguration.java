@@ -1,25 +1,25 @@
 package io.spring.batch.configuration;
 
+import io.spring.batch.domain.BulkLoadItemWriter;
+import io.spring.batch.domain.CompiledJdbcBatchItemWriterBuilder;
+import io.spring.batch.domain.ConcurrencyPlanner;
 import io.spring.batch.domain.Customer;
 import io.spring.batch.domain.CustomerRowMapper;
+import io.spring.batch.domain.KeyRangePageItemReader;
+import io.spring.batch.domain.PushdownCopyTasklet;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
-import org.springframework.batch.item.database.BeanPropertyItemSqlParameterSourceProvider;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.JdbcBatchItemWriter;
-import org.springframework.batch.item.database.JdbcPagingItemReader;
-import org.springframework.batch.item.database.Order;
-import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
-import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
-import org.springframework.batch.item.database.support.MySqlPagingQueryProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import javax.sql.DataSource;
-import java.util.HashMap;
-import java.util.Map;
 
 @Configuration
 public class MultithreadedStepJobConfiguration {
@@ -43,44 +43,84 @@ public class MultithreadedStepJobConfiguration {
     }
 
     @Bean
-    public Step multithreadedStep(JdbcPagingItemReader<Customer> pagingItemReader,
-                                  JdbcBatchItemWriter<Customer> customerItemWriter) {
+    @JobScope
+    @Profile("!pushdown")
+    public Step multithreadedStep(KeyRangePageItemReader<Customer> keyRangePageItemReader,
+                                  ItemWriter<Customer> customerItemWriter,
+                                  ConcurrencyPlanner concurrencyPlanner,
+                                  ThreadPoolTaskExecutor stepTaskExecutor) {
         return stepBuilderFactory.get("multithreadedStep").
                 <Customer, Customer>chunk(1000).
-                reader(pagingItemReader).
+                reader(keyRangePageItemReader).
                 writer(customerItemWriter).
-                taskExecutor(new SimpleAsyncTaskExecutor()).
+                taskExecutor(stepTaskExecutor).
+                throttleLimit(concurrencyPlanner.getThreadCount(keyRangePageItemReader.countRows())).
                 build();
     }
 
-    @Bean
-    public JdbcPagingItemReader<Customer> pagingItemReader() {
-        MySqlPagingQueryProvider queryProvider = new MySqlPagingQueryProvider();
-        queryProvider.setSelectClause("id, firstName, lastName, birthdate");
-        queryProvider.setFromClause("from customer");
+    @Bean(name = "multithreadedStep")
+    @Profile("pushdown")
+    public Step pushdownStep() {
+        PushdownCopyTasklet pushdownCopyTasklet = new PushdownCopyTasklet();
+        pushdownCopyTasklet.setDataSource(dataSource);
+        pushdownCopyTasklet.setSourceTable("customer");
+        pushdownCopyTasklet.setTargetTable("new_customer");
+        pushdownCopyTasklet.setColumns("id, firstName, lastName, birthdate");
+        pushdownCopyTasklet.afterPropertiesSet();
 
-        Map<String, Order> sortKeys = new HashMap<>(1);
+        return stepBuilderFactory.get("multithreadedStep").
+                tasklet(pushdownCopyTasklet).
+                build();
+    }
 
-        sortKeys.put("id", Order.ASCENDING);
+    @Bean
+    public ThreadPoolTaskExecutor stepTaskExecutor(ConcurrencyPlanner concurrencyPlanner) {
+        return concurrencyPlanner.taskExecutor("step-");
+    }
 
-        queryProvider.setSortKeys(sortKeys);
+    @Bean
+    public ConcurrencyPlanner concurrencyPlanner() {
+        ConcurrencyPlanner concurrencyPlanner = new ConcurrencyPlanner();
+        concurrencyPlanner.setDataSource(dataSource);
+        concurrencyPlanner.setTargetRowsPerPartition(50_000);
+        return concurrencyPlanner;
+    }
 
-        return new JdbcPagingItemReaderBuilder<Customer>().
-                dataSource(dataSource).
-                fetchSize(1000).
-                rowMapper(new CustomerRowMapper()).
-                queryProvider(queryProvider).
-                saveState(false).
-                build();
+    @Bean
+    public KeyRangePageItemReader<Customer> keyRangePageItemReader() {
+        KeyRangePageItemReader<Customer> keyRangePageItemReader = new KeyRangePageItemReader<>();
+        keyRangePageItemReader.setDataSource(dataSource);
+        keyRangePageItemReader.setSelectClause("id, firstName, lastName, birthdate");
+        keyRangePageItemReader.setTable("customer");
+        keyRangePageItemReader.setKeyColumn("id");
+        keyRangePageItemReader.setRowMapperSupplier(CustomerRowMapper::new);
+        keyRangePageItemReader.setPageSize(1000);
+        keyRangePageItemReader.setKeyExtractor(Customer::getId);
+        keyRangePageItemReader.setSaveState(true);
+        return keyRangePageItemReader;
     }
 
     @Bean
+    @Profile("!bulkload")
     public JdbcBatchItemWriter<Customer> customerItemWriter() {
-        return new JdbcBatchItemWriterBuilder<Customer>().
+        return new CompiledJdbcBatchItemWriterBuilder<>(Customer.class).
                 dataSource(dataSource).
                 sql("INSERT INTO NEW_CUSTOMER VALUES (:id, :firstName, :lastName, :birthdate)").
-                itemSqlParameterSourceProvider(new BeanPropertyItemSqlParameterSourceProvider<>()).
                 build();
     }
 
+    @Bean(name = "customerItemWriter")
+    @Profile("bulkload")
+    public BulkLoadItemWriter<Customer> bulkLoadItemWriter() {
+        BulkLoadItemWriter<Customer> customerItemWriter = new BulkLoadItemWriter<>();
+        customerItemWriter.setDataSource(dataSource);
+        customerItemWriter.setTable("new_customer");
+        customerItemWriter.setColumns("id, firstName, lastName, birthdate");
+        customerItemWriter.setFieldExtractor(customer -> new Object[]{customer.getId(),
+                customer.getFirstName(),
+                customer.getLastName(),
+                customer.getBirthdate()});
+        return customerItemWriter;
+    }
+
 }
@@ -0,0 +1,60 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
+import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link JdbcBatchItemWriterBuilder} that binds the named parameters of the SQL
+ * statement with a {@link CompiledItemPreparedStatementSetter} instead of the
+ * reflective bean property provider. The statement is written exactly as for
+ * <code>beanMapped()</code>, for example
+ * <code>INSERT INTO NEW_CUSTOMER VALUES (:id, :firstName, :lastName, :birthdate)</code>;
+ * the builder turns it into a positional statement and resolves the accessors of
+ * the named properties once.
+ *
+ * @param <T> the type of the items
+ */
+public class CompiledJdbcBatchItemWriterBuilder<T> extends JdbcBatchItemWriterBuilder<T> {
+
+    private final Class<T> itemType;
+
+    private String sql;
+
+    /**
+     * @param itemType the class of the items, whose properties are named in the
+     * SQL statement
+     */
+    public CompiledJdbcBatchItemWriterBuilder(Class<T> itemType) {
+        this.itemType = itemType;
+    }
+
+    @Override
+    public JdbcBatchItemWriterBuilder<T> sql(String sql) {
+        this.sql = sql;
+        return super.sql(sql);
+    }
+
+    @Override
+    public JdbcBatchItemWriter<T> build() {
+        Assert.notNull(sql, "A SQL statement is required");
+
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+        List<String> propertyNames = new ArrayList<>();
+        for (SqlParameter parameter : NamedParameterUtils.buildSqlParameterList(parsedSql, new MapSqlParameterSource())) {
+            propertyNames.add(parameter.getName());
+        }
+
+        super.sql(NamedParameterUtils.substituteNamedParameters(parsedSql, null));
+        itemPreparedStatementSetter(new CompiledItemPreparedStatementSetter<>(itemType, propertyNames));
+
+        return super.build();
+    }
+}
@@ -0,0 +1,683 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * {@link ItemReader} for multithreaded steps that reads a table in pages of key
+ * ranges, each thread fetching its own pages concurrently instead of sharing one
+ * paging reader. When the reader is opened, the keys are cut into pages of
+ * {@link #setPageSize(int) pageSize} rows with a single <code>NTILE</code>
+ * query, so pages stay even however the keys are spread. A thread then claims
+ * the next page from an atomic cursor, queries its key range on its own
+ * connection and reads the page in key order.
+ * <p>
+ * When no range is left, a thread takes the remaining items of other threads'
+ * pages, and the reader only returns <code>null</code> once every page has been
+ * fetched and drained, so no thread ends the step while items are still queued.
+ * A thread finding nothing to take while pages are still being fetched waits
+ * until one of them is fetched.
+ * <p>
+ * Pages, rows, steals and fetch time are counted per thread, available from
+ * {@link #getStats()} and saved in the step execution context after the step
+ * under <code>&lt;name&gt;.stats</code>.
+ * <p>
+ * With {@link #setSaveState(boolean) saveState}, the reader checkpoints the key
+ * ranges whose items have been committed, as the multithreaded step commits
+ * chunks out of order. Each written item covers the keys from its own up to the
+ * next key of its page; the keys written by a thread stay pending until its
+ * chunk transaction commits and are then merged into the committed ranges. The
+ * execution context gets the contiguous low watermark, below which every key is
+ * committed, as <code>&lt;name&gt;.watermark</code> and the few committed ranges
+ * above it as <code>&lt;name&gt;.committedRanges</code>
+ * (<code>start:end,...</code>, ends excluded). The state saved with a chunk is
+ * what was committed before it plus the chunk itself, never the pending keys of
+ * other threads: the step serializes the execution context updates and commits
+ * of its threads, and keys are merged in the commit, before the next update. On
+ * restart, only the keys from the watermark that are outside of the committed
+ * ranges are paged and read again.
+ *
+ * @param <T> the type of the items
+ */
+public class KeyRangePageItemReader<T> implements ItemReader<T>, ItemStream, ItemWriteListener<T>,
+        StepExecutionListener, InitializingBean {
+
+    private static final String WATERMARK = ".watermark";
+
+    private static final String COMMITTED_RANGES = ".committedRanges";
+
+    private JdbcTemplate jdbcTemplate;
+
+    private String selectClause;
+
+    private String table;
+
+    private String keyColumn;
+
+    private Supplier<RowMapper<T>> rowMapperSupplier;
+
+    private int pageSize = 1000;
+
+    private int fetchSize = 1000;
+
+    private String name = "keyRangePageItemReader";
+
+    private boolean saveState;
+
+    private ToLongFunction<T> keyExtractor;
+
+    private String pageSql;
+
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    private volatile long[] pageStarts = new long[0];
+
+    private volatile long endKey;
+
+    private final AtomicInteger pagesInFlight = new AtomicInteger();
+
+    private final Lock fetchLock = new ReentrantLock();
+
+    private final Condition fetchDone = fetchLock.newCondition();
+
+    private final Queue<Queue<T>> pages = new ConcurrentLinkedQueue<>();
+
+    private volatile int execution;
+
+    private final ThreadLocal<ThreadState<T>> threadStates = new ThreadLocal<>();
+
+    private final Queue<ThreadState<T>> openThreadStates = new ConcurrentLinkedQueue<>();
+
+    private final Map<String, FetchStats> stats = new ConcurrentHashMap<>();
+
+    private final NavigableMap<Long, Long> committed = new TreeMap<>();
+
+    private final Map<Integer, Page> openPages = new ConcurrentHashMap<>();
+
+    /**
+     * The data source to read from.
+     *
+     * @param dataSource a {@link DataSource}
+     */
+    public void setDataSource(DataSource dataSource) {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * The columns to read, for example <code>id, firstName, lastName, birthdate</code>.
+     *
+     * @param selectClause the select clause, without <code>SELECT</code>
+     */
+    public void setSelectClause(String selectClause) {
+        this.selectClause = selectClause;
+    }
+
+    /**
+     * The name of the table to read.
+     *
+     * @param table the name of the table
+     */
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    /**
+     * The integer column the pages are ranges of, usually the primary key.
+     *
+     * @param keyColumn the column name
+     */
+    public void setKeyColumn(String keyColumn) {
+        this.keyColumn = keyColumn;
+    }
+
+    /**
+     * Creates the {@link RowMapper} of each thread, so row mappers keeping state,
+     * such as {@link CustomerRowMapper}, are never shared.
+     *
+     * @param rowMapperSupplier a supplier of row mappers
+     */
+    public void setRowMapperSupplier(Supplier<RowMapper<T>> rowMapperSupplier) {
+        this.rowMapperSupplier = rowMapperSupplier;
+    }
+
+    /**
+     * The number of rows aimed for per page. Defaults to 1000.
+     *
+     * @param pageSize the number of rows per page
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * The JDBC fetch size hint. Defaults to 1000.
+     *
+     * @param fetchSize the fetch size
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * The prefix of the keys in the execution context.
+     *
+     * @param name the name of the reader
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Whether to checkpoint the committed key ranges for restart. Defaults to
+     * false. Requires a {@link #setKeyExtractor(ToLongFunction) key extractor}.
+     *
+     * @param saveState true to save the committed key ranges
+     */
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    /**
+     * Gives the value of the key column of an item, to track which keys are
+     * committed.
+     *
+     * @param keyExtractor the key of an item
+     */
+    public void setKeyExtractor(ToLongFunction<T> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(jdbcTemplate, "A DataSource is required");
+        Assert.hasText(selectClause, "A select clause is required");
+        Assert.hasText(table, "A table is required");
+        Assert.hasText(keyColumn, "A key column is required");
+        Assert.notNull(rowMapperSupplier, "A RowMapper supplier is required");
+        Assert.isTrue(pageSize > 0, "The page size must be positive");
+        Assert.isTrue(!saveState || keyExtractor != null, "A key extractor is required to save state");
+
+        jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Count the rows of the table, so the number of threads can be derived from
+     * the amount of data.
+     *
+     * @return the number of rows in the table
+     */
+    public long countRows() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        discardThreadStates();
+
+        synchronized (committed) {
+            committed.clear();
+            openPages.clear();
+
+            if (saveState && executionContext.containsKey(name + WATERMARK)) {
+                committed.put(Long.MIN_VALUE, executionContext.getLong(name + WATERMARK));
+                String ranges = executionContext.getString(name + COMMITTED_RANGES, "");
+                for (String range : StringUtils.commaDelimitedListToStringArray(ranges)) {
+                    int separator = range.indexOf(':', 1);
+                    committed.put(Long.parseLong(range.substring(0, separator)),
+                            Long.parseLong(range.substring(separator + 1)));
+                }
+            }
+        }
+
+        String filter = remainingKeysFilter();
+        Long rowCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE 1 = 1" + filter,
+                Long.class);
+        long pageCount = rowCount != null ? (rowCount + pageSize - 1) / pageSize : 0;
+
+        List<Long> starts = jdbcTemplate.queryForList("SELECT MIN(" + keyColumn + ") FROM (SELECT " + keyColumn +
+                ", NTILE(" + Math.max(pageCount, 1) + ") OVER (ORDER BY " + keyColumn + ") AS page FROM " + table +
+                " WHERE 1 = 1" + filter + ") pages GROUP BY page ORDER BY 1", Long.class);
+        Long maxKey = jdbcTemplate.queryForObject("SELECT MAX(" + keyColumn + ") FROM " + table, Long.class);
+
+        long[] pageStarts = new long[starts.size()];
+        for (int i = 0; i < pageStarts.length; i++) {
+            pageStarts[i] = starts.get(i);
+        }
+
+        pageSql = "SELECT " + selectClause + " FROM " + table + " WHERE " + keyColumn + " >= ? AND " + keyColumn +
+                " < ?" + filter + " ORDER BY " + keyColumn;
+        pages.clear();
+        stats.clear();
+        pagesInFlight.set(0);
+        endKey = maxKey != null ? maxKey + 1 : 0;
+        this.pageStarts = pageStarts;
+        cursor.set(0);
+
+        if (saveState) {
+            synchronized (committed) {
+                // no key is left before the first page
+                addRange(committed, Long.MIN_VALUE, pageStarts.length > 0 ? pageStarts[0] : endKey);
+            }
+        }
+    }
+
+    /**
+     * @return the predicate leaving out the keys committed before a restart
+     */
+    private String remainingKeysFilter() {
+        StringBuilder filter = new StringBuilder();
+        synchronized (committed) {
+            for (Map.Entry<Long, Long> range : committed.entrySet()) {
+                if (range.getKey() == Long.MIN_VALUE) {
+                    filter.append(" AND ").append(keyColumn).append(" >= ").append(range.getValue());
+                }
+                else {
+                    filter.append(" AND NOT (").append(keyColumn).append(" >= ").append(range.getKey()).
+                            append(" AND ").append(keyColumn).append(" < ").append(range.getValue()).append(")");
+                }
+            }
+        }
+        return filter.toString();
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (!saveState) {
+            return;
+        }
+
+        List<Long> keys = threadState().pendingKeys;
+        NavigableMap<Long, Long> ranges;
+        synchronized (committed) {
+            ranges = new TreeMap<>(committed);
+            for (long key : keys) {
+                Page page = openPages.get(pageIndex(key));
+                addRange(ranges, page.rangeStart(key), page.rangeEnd(key));
+            }
+        }
+
+        Map.Entry<Long, Long> belowWatermark = ranges.pollFirstEntry();
+        StringBuilder committedRanges = new StringBuilder();
+        for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+            if (committedRanges.length() > 0) {
+                committedRanges.append(',');
+            }
+            committedRanges.append(range.getKey()).append(':').append(range.getValue());
+        }
+        executionContext.putLong(name + WATERMARK, belowWatermark.getValue());
+        executionContext.putString(name + COMMITTED_RANGES, committedRanges.toString());
+
+        if (!keys.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> chunkKeys = new ArrayList<>(keys);
+            keys.clear();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    commit(chunkKeys);
+                }
+            });
+        }
+    }
+
+    private void commit(List<Long> keys) {
+        synchronized (committed) {
+            for (long key : keys) {
+                int index = pageIndex(key);
+                Page page = openPages.get(index);
+                addRange(committed, page.rangeStart(key), page.rangeEnd(key));
+                if (--page.uncommitted == 0) {
+                    openPages.remove(index);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void beforeWrite(List<? extends T> items) {
+        // keys of a chunk that failed after being written
+        threadState().pendingKeys.clear();
+    }
+
+    @Override
+    public void afterWrite(List<? extends T> items) {
+        if (saveState) {
+            List<Long> keys = threadState().pendingKeys;
+            for (T item : items) {
+                keys.add(keyExtractor.applyAsLong(item));
+            }
+        }
+    }
+
+    @Override
+    public void onWriteError(Exception exception, List<? extends T> items) {
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        discardThreadStates();
+    }
+
+    /**
+     * Ends the state of the current execution in every thread. The state of a
+     * pooled thread is only replaced the next time it reads, so what it holds is
+     * released here.
+     */
+    private void discardThreadStates() {
+        execution++;
+        for (ThreadState<T> state = openThreadStates.poll(); state != null; state = openThreadStates.poll()) {
+            state.page = null;
+            state.pendingKeys.clear();
+            state.rowMapper = null;
+        }
+        threadStates.remove();
+    }
+
+    /**
+     * @return the state of the current thread in the current execution
+     */
+    private ThreadState<T> threadState() {
+        ThreadState<T> state = threadStates.get();
+        if (state == null || state.execution != execution) {
+            state = new ThreadState<>(execution, rowMapperSupplier.get());
+            threadStates.set(state);
+            openThreadStates.add(state);
+        }
+        return state;
+    }
+
+    @Override
+    public T read() throws InterruptedException {
+        ThreadState<T> state = threadState();
+        Queue<T> page = state.page;
+        T item = page != null ? page.poll() : null;
+
+        while (item == null) {
+            if (page != null) {
+                pages.remove(page);
+            }
+
+            page = nextPage(state.rowMapper);
+            state.page = page;
+            if (page != null) {
+                item = page.poll();
+                continue;
+            }
+
+            item = steal();
+            if (item == null) {
+                // a page being fetched is published before the counter goes down
+                if (pagesInFlight.get() == 0 && isDrained()) {
+                    return null;
+                }
+                awaitFetch();
+            }
+        }
+
+        return item;
+    }
+
+    /**
+     * Waits, while every published page is drained, for the pages being fetched
+     * by other threads, until one of them is published or they are all done.
+     */
+    private void awaitFetch() throws InterruptedException {
+        fetchLock.lock();
+        try {
+            while (pagesInFlight.get() > 0 && isDrained()) {
+                fetchDone.await();
+            }
+        }
+        finally {
+            fetchLock.unlock();
+        }
+    }
+
+    /**
+     * @return a new page of this thread, or null when there is no range left
+     */
+    private Queue<T> nextPage(RowMapper<T> rowMapper) {
+        long[] pageStarts = this.pageStarts;
+        if (cursor.get() >= pageStarts.length) {
+            return null;
+        }
+
+        pagesInFlight.incrementAndGet();
+        try {
+            int index = cursor.getAndIncrement();
+            if (index >= pageStarts.length) {
+                return null;
+            }
+            long start = pageStarts[index];
+            long end = index + 1 < pageStarts.length ? pageStarts[index + 1] : endKey;
+
+            FetchStats threadStats = threadStats();
+            long fetchStart = System.nanoTime();
+            List<T> items = jdbcTemplate.query(pageSql, rowMapper, start, end);
+            threadStats.fetchNanos.add(System.nanoTime() - fetchStart);
+            threadStats.pages.increment();
+            threadStats.rows.add(items.size());
+
+            if (saveState) {
+                openPage(index, start, end, items);
+            }
+
+            Queue<T> page = new ConcurrentLinkedQueue<>(items);
+            pages.add(page);
+            return page;
+        }
+        finally {
+            pagesInFlight.decrementAndGet();
+            fetchLock.lock();
+            try {
+                fetchDone.signalAll();
+            }
+            finally {
+                fetchLock.unlock();
+            }
+        }
+    }
+
+    private void openPage(int index, long start, long end, List<T> items) {
+        long[] keys = new long[items.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyExtractor.applyAsLong(items.get(i));
+        }
+
+        synchronized (committed) {
+            if (keys.length == 0) {
+                addRange(committed, start, end);
+            }
+            else {
+                openPages.put(index, new Page(start, end, keys));
+            }
+        }
+    }
+
+    private int pageIndex(long key) {
+        int index = Arrays.binarySearch(pageStarts, key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Adds the range from <code>start</code> to <code>end</code> (excluded) to
+     * disjoint ranges, merging the ones it overlaps or touches.
+     */
+    private static void addRange(NavigableMap<Long, Long> ranges, long start, long end) {
+        Map.Entry<Long, Long> before = ranges.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+
+        Map.Entry<Long, Long> next = ranges.ceilingEntry(start);
+        while (next != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            ranges.remove(next.getKey());
+            next = ranges.higherEntry(next.getKey());
+        }
+        ranges.put(start, end);
+    }
+
+    private T steal() {
+        for (Queue<T> page : pages) {
+            T item = page.poll();
+            if (item != null) {
+                threadStats().steals.increment();
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private boolean isDrained() {
+        for (Queue<T> page : pages) {
+            if (!page.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private FetchStats threadStats() {
+        return stats.computeIfAbsent(Thread.currentThread().getName(), threadName -> new FetchStats());
+    }
+
+    /**
+     * @return the fetch statistics of each thread, by thread name
+     */
+    public Map<String, FetchStats> getStats() {
+        return Collections.unmodifiableMap(new TreeMap<>(stats));
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        stepExecution.getExecutionContext().putString(name + ".stats", getStats().toString());
+        return null;
+    }
+
+    /**
+     * The keys of a page read with state saved, kept until all of its items are
+     * committed. An item covers the keys from its own to the next one of the
+     * page, the first and last ones reaching the bounds of the page.
+     */
+    private static class Page {
+
+        private final long start;
+
+        private final long end;
+
+        private final long[] keys;
+
+        private int uncommitted;
+
+        Page(long start, long end, long[] keys) {
+            this.start = start;
+            this.end = end;
+            this.keys = keys;
+            this.uncommitted = keys.length;
+        }
+
+        long rangeStart(long key) {
+            return key == keys[0] ? start : key;
+        }
+
+        long rangeEnd(long key) {
+            int position = Arrays.binarySearch(keys, key);
+            return position + 1 < keys.length ? keys[position + 1] : end;
+        }
+    }
+
+    /**
+     * What a thread keeps while reading, valid for one execution of the reader:
+     * a thread of a pool left with the state of a failed execution starts afresh
+     * in the next one instead of reading a stale page or committing stale keys.
+     */
+    private static class ThreadState<T> {
+
+        private final int execution;
+
+        private RowMapper<T> rowMapper;
+
+        private Queue<T> page;
+
+        private final List<Long> pendingKeys = new ArrayList<>();
+
+        ThreadState(int execution, RowMapper<T> rowMapper) {
+            this.execution = execution;
+            this.rowMapper = rowMapper;
+        }
+    }
+
+    /**
+     * What one thread fetched.
+     */
+    public static class FetchStats {
+
+        private final LongAdder pages = new LongAdder();
+
+        private final LongAdder rows = new LongAdder();
+
+        private final LongAdder steals = new LongAdder();
+
+        private final LongAdder fetchNanos = new LongAdder();
+
+        public long getPages() {
+            return pages.sum();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getSteals() {
+            return steals.sum();
+        }
+
+        public long getFetchMillis() {
+            return fetchNanos.sum() / 1_000_000;
+        }
+
+        @Override
+        public String toString() {
+            return "{pages=" + getPages() + ", rows=" + getRows() + ", steals=" + getSteals() +
+                    ", fetchMillis=" + getFetchMillis() + "}";
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package io.spring.batch.configuration;
 
+import io.spring.batch.domain.ByteBudgetCompletionPolicy;
 import io.spring.batch.domain.Customer;
 import io.spring.batch.domain.CustomerRowMapper;
+import io.spring.batch.domain.CustomerSizeEstimator;
+import io.spring.batch.domain.SizeTrackingItemReader;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.batch.core.Job;
@@ -53,6 +56,7 @@ public class ManagerConfiguration {
     }
 
     @Bean
+    @Profile("!byte-budget")
     public Step managerStep(JdbcPagingItemReader<Customer> pagingItemReader,
                             DirectChannel requests,
                             QueueChannel replies) {
@@ -64,6 +68,41 @@ public class ManagerConfiguration {
                 build();
     }
 
+    @Bean(name = "managerStep")
+    @Profile("byte-budget")
+    public Step byteBudgetManagerStep(SizeTrackingItemReader<Customer> sizeTrackingItemReader,
+                                      ByteBudgetCompletionPolicy byteBudgetCompletionPolicy,
+                                      DirectChannel requests,
+                                      QueueChannel replies) {
+        return remoteChunkingManagerStepBuilderFactory.get("managerStep").
+                chunk(byteBudgetCompletionPolicy).
+                reader(sizeTrackingItemReader).
+                listener(byteBudgetCompletionPolicy).
+                outputChannel(requests).
+                inputChannel(replies).
+                build();
+    }
+
+    @Bean
+    @Profile("byte-budget")
+    public ByteBudgetCompletionPolicy byteBudgetCompletionPolicy() {
+        ByteBudgetCompletionPolicy byteBudgetCompletionPolicy = new ByteBudgetCompletionPolicy();
+        byteBudgetCompletionPolicy.setMaxBytes(512 * 1024);
+        byteBudgetCompletionPolicy.setMaxItems(5000);
+        return byteBudgetCompletionPolicy;
+    }
+
+    @Bean
+    @Profile("byte-budget")
+    public SizeTrackingItemReader<Customer> sizeTrackingItemReader(JdbcPagingItemReader<Customer> pagingItemReader,
+                                                                   ByteBudgetCompletionPolicy byteBudgetCompletionPolicy) {
+        SizeTrackingItemReader<Customer> sizeTrackingItemReader = new SizeTrackingItemReader<>();
+        sizeTrackingItemReader.setDelegate(pagingItemReader);
+        sizeTrackingItemReader.setItemSizeEstimator(new CustomerSizeEstimator());
+        sizeTrackingItemReader.setCompletionPolicy(byteBudgetCompletionPolicy);
+        return sizeTrackingItemReader;
+    }
+
     @Bean
     @StepScope
     public JdbcPagingItemReader<Customer> pagingItemReader() {
@@ -80,6 +119,7 @@ public class ManagerConfiguration {
         return new JdbcPagingItemReaderBuilder<Customer>().
                 dataSource(dataSource).
                 fetchSize(1000).
+                pageSize(1000).
                 rowMapper(new CustomerRowMapper()).
                 queryProvider(queryProvider).
                 saveState(false).
@@ -1,14 +1,14 @@
 package io.spring.batch.configuration;
 
+import io.spring.batch.domain.CachingItemProcessor;
+import io.spring.batch.domain.CompiledJdbcBatchItemWriterBuilder;
 import io.spring.batch.domain.Customer;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.batch.integration.chunk.RemoteChunkingWorkerBuilder;
 import org.springframework.batch.integration.config.annotation.EnableBatchIntegration;
 import org.springframework.batch.item.ItemProcessor;
-import org.springframework.batch.item.database.BeanPropertyItemSqlParameterSourceProvider;
 import org.springframework.batch.item.database.JdbcBatchItemWriter;
-import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -18,6 +18,7 @@ import org.springframework.integration.dsl.IntegrationFlow;
 import org.springframework.integration.dsl.IntegrationFlows;
 
 import javax.sql.DataSource;
+import java.util.Arrays;
 
 @Configuration
 @Profile("worker")
@@ -32,11 +33,11 @@ public class WorkerConfiguration {
     }
 
     @Bean
-    public IntegrationFlow integrationFlow(ItemProcessor<Customer, Customer> processor,
+    public IntegrationFlow integrationFlow(ItemProcessor<Customer, Customer> cachingProcessor,
                                            JdbcBatchItemWriter<Customer> customerItemWriter,
                                            DirectChannel requests,
                                            DirectChannel replies) {
-        return workerBuilder.itemProcessor(processor).
+        return workerBuilder.itemProcessor(cachingProcessor).
                 itemWriter(customerItemWriter).
                 inputChannel(requests).
                 outputChannel(replies).
@@ -52,12 +53,25 @@ public class WorkerConfiguration {
                 customer.getBirthdate());
     }
 
+    @Bean
+    public CachingItemProcessor<Customer, Object, Customer> cachingProcessor(ItemProcessor<Customer, Customer> processor) {
+        CachingItemProcessor<Customer, Object, Customer> cachingProcessor = new CachingItemProcessor<>();
+        cachingProcessor.setDelegate(processor);
+        cachingProcessor.setKeyExtractor(customer -> Arrays.asList(customer.getFirstName(), customer.getLastName()));
+        cachingProcessor.setRebinder((customer, cached) -> new Customer(customer.getId(),
+                cached.getFirstName(),
+                cached.getLastName(),
+                customer.getBirthdate()));
+        cachingProcessor.setMaximumSize(100_000);
+        cachingProcessor.setName("processor");
+        return cachingProcessor;
+    }
+
     @Bean
     public JdbcBatchItemWriter<Customer> customerItemWriter() {
-        return new JdbcBatchItemWriterBuilder<Customer>().
+        return new CompiledJdbcBatchItemWriterBuilder<>(Customer.class).
                 dataSource(dataSource).
                 sql("INSERT INTO new_customer VALUES (:id, :firstName, :lastName, :birthdate)").
-                itemSqlParameterSourceProvider(new BeanPropertyItemSqlParameterSourceProvider<>()).
                 build();
     }
 
@@ -0,0 +1,104 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.repeat.CompletionPolicy;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+import org.springframework.batch.repeat.policy.CompletionPolicySupport;
+import org.springframework.batch.repeat.policy.CompositeCompletionPolicy;
+
+/**
+ * {@link CompletionPolicy} closing a chunk once the estimated size of its items
+ * reaches {@link #setMaxBytes(long) maxBytes}, or once it has
+ * {@link #setMaxItems(int) maxItems} items, whichever comes first, so chunks of
+ * large items do not take more heap or make larger JDBC batches than chunks of
+ * small ones.
+ * <p>
+ * The size of the items is counted by a {@link SizeTrackingItemReader} wrapping
+ * the reader of the step, in the chunk being read by the current thread, so a
+ * single policy can serve partitioned and multithreaded steps. It can be
+ * combined with other policies in a {@link CompositeCompletionPolicy}.
+ * <p>
+ * The policy must also be registered as a listener of its step: the chunk read
+ * by a thread is forgotten when the chunk ends, so pooled threads do not keep
+ * it once the step is over.
+ */
+public class ByteBudgetCompletionPolicy extends CompletionPolicySupport implements ChunkListener {
+
+    private long maxBytes = 4 * 1024 * 1024;
+
+    private int maxItems = 10_000;
+
+    private final ThreadLocal<ByteBudgetContext> current = new ThreadLocal<>();
+
+    /**
+     * The estimated size of the items of a chunk. Defaults to 4 MiB.
+     *
+     * @param maxBytes the budget of a chunk in bytes
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The number of items of a chunk, whatever their size. Defaults to 10 000.
+     *
+     * @param maxItems the maximum number of items per chunk
+     */
+    public void setMaxItems(int maxItems) {
+        this.maxItems = maxItems;
+    }
+
+    @Override
+    public RepeatContext start(RepeatContext parent) {
+        ByteBudgetContext context = new ByteBudgetContext(parent);
+        current.set(context);
+        return context;
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context) {
+        return context.getStartedCount() >= maxItems || ((ByteBudgetContext) context).bytes >= maxBytes;
+    }
+
+    @Override
+    public void update(RepeatContext context) {
+        ((ByteBudgetContext) context).increment();
+    }
+
+    /**
+     * Adds the size of an item to the chunk being read by the current thread.
+     *
+     * @param bytes the estimated size of the item read
+     */
+    void addBytes(long bytes) {
+        ByteBudgetContext context = current.get();
+        if (context != null) {
+            context.bytes += bytes;
+        }
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        current.remove();
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        current.remove();
+    }
+
+    private static class ByteBudgetContext extends RepeatContextSupport {
+
+        private long bytes;
+
+        ByteBudgetContext(RepeatContext parent) {
+            super(parent);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package io.spring.batch.domain;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * {@link ItemProcessor} caching the results of a delegate that is a function of
+ * a few fields of the items, so items repeating them, in any chunk or
+ * partition, are not processed again. The {@link #setKeyExtractor(Function) key}
+ * of an item is made of these fields; when the result also carries fields of
+ * its own item, such as its id, the {@link #setRebinder(BiFunction) rebinder}
+ * builds the result of an item from the cached one.
+ * <p>
+ * The cache is a Caffeine cache, safe for multithreaded and async steps,
+ * bounded by {@link #setMaximumSize(long) size} or by
+ * {@link #setMaximumWeight(long, Weigher) weight} with W-TinyLFU eviction, its
+ * entries optionally expiring after a {@link #setExpireAfterWrite(Duration)
+ * time to live}. Filtered items are cached too. Hits, misses and evictions are
+ * published as the Micrometer cache meters tagged with the
+ * {@link #setName(String) name}, in {@link Metrics#globalRegistry} unless
+ * another registry is set.
+ *
+ * @param <I> the type of the input items
+ * @param <K> the type of the cache keys
+ * @param <O> the type of the output items
+ */
+public class CachingItemProcessor<I, K, O> implements ItemProcessor<I, O>, InitializingBean {
+
+    private ItemProcessor<I, O> delegate;
+
+    private Function<I, K> keyExtractor;
+
+    private BiFunction<I, O, O> rebinder = (item, result) -> result;
+
+    private long maximumSize = 10_000;
+
+    private long maximumWeight = -1;
+
+    private Weigher<K, Optional<O>> weigher;
+
+    private Duration expireAfterWrite;
+
+    private String name = "cachingItemProcessor";
+
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private Cache<K, Optional<O>> cache;
+
+    /**
+     * The processor whose results are cached.
+     *
+     * @param delegate the delegate {@link ItemProcessor}
+     */
+    public void setDelegate(ItemProcessor<I, O> delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Gives the cache key of an item, made of the fields the result depends on.
+     *
+     * @param keyExtractor the key of an item
+     */
+    public void setKeyExtractor(Function<I, K> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * Builds the result of an item from the cached result of an item with the
+     * same key. Defaults to returning the cached result.
+     *
+     * @param rebinder the result of an item from the item and the cached result
+     */
+    public void setRebinder(BiFunction<I, O, O> rebinder) {
+        this.rebinder = rebinder;
+    }
+
+    /**
+     * The maximum number of cached results. Defaults to 10 000.
+     *
+     * @param maximumSize the maximum number of entries
+     */
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Bounds the cache by the total weight of its entries instead of their
+     * number.
+     *
+     * @param maximumWeight the maximum total weight
+     * @param weigher the weight of an entry, its result empty for a filtered item
+     */
+    public void setMaximumWeight(long maximumWeight, Weigher<K, Optional<O>> weigher) {
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * How long a result stays cached. Defaults to no expiry.
+     *
+     * @param expireAfterWrite the time to live of the entries
+     */
+    public void setExpireAfterWrite(Duration expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+    }
+
+    /**
+     * The value of the <code>cache</code> tag of the meters.
+     *
+     * @param name the name of the cache
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The registry of the meters. Defaults to {@link Metrics#globalRegistry}.
+     *
+     * @param meterRegistry a {@link MeterRegistry}
+     */
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(delegate, "A delegate ItemProcessor is required");
+        Assert.notNull(keyExtractor, "A key extractor is required");
+        Assert.notNull(rebinder, "A rebinder is required");
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        if (expireAfterWrite != null) {
+            builder.expireAfterWrite(expireAfterWrite);
+        }
+
+        if (weigher != null) {
+            cache = builder.maximumWeight(maximumWeight).weigher(weigher).build();
+        }
+        else {
+            cache = builder.maximumSize(maximumSize).build();
+        }
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+
+    @Override
+    public O process(I item) throws Exception {
+        K key = keyExtractor.apply(item);
+        Optional<O> cached = cache.getIfPresent(key);
+        if (cached == null) {
+            // computed outside of the cache, so the delegate may throw checked exceptions
+            O result = delegate.process(item);
+            cache.put(key, Optional.ofNullable(result));
+            return result;
+        }
+        return cached.map(result -> rebinder.apply(item, result)).orElse(null);
+    }
+}
@@ -0,0 +1,25 @@
+package io.spring.batch.domain;
+
+/**
+ * Estimates the heap taken by a {@link Customer} on a 64-bit JVM with
+ * compressed references: the customer itself, its two names as Latin-1
+ * strings and its birthdate.
+ */
+public class CustomerSizeEstimator implements ItemSizeEstimator<Customer> {
+
+    private static final long CUSTOMER = 32;
+
+    private static final long STRING = 24 + 16;
+
+    private static final long LOCAL_DATE_TIME = 24 + 24 + 24;
+
+    @Override
+    public long estimateSize(Customer customer) {
+        return CUSTOMER + sizeOf(customer.getFirstName()) + sizeOf(customer.getLastName()) +
+                (customer.getBirthdate() != null ? LOCAL_DATE_TIME : 0);
+    }
+
+    private static long sizeOf(String value) {
+        return value != null ? STRING + ((value.length() + 7) & ~7) : 0;
+    }
+}
@@ -0,0 +1,16 @@
+package io.spring.batch.domain;
+
+/**
+ * Estimates the memory an item takes, for chunks bounded in bytes rather than
+ * in items, such as the chunks of a {@link ByteBudgetCompletionPolicy}.
+ *
+ * @param <T> the type of the items
+ */
+public interface ItemSizeEstimator<T> {
+
+    /**
+     * @param item an item
+     * @return an estimate of the bytes retained by the item
+     */
+    long estimateSize(T item);
+}
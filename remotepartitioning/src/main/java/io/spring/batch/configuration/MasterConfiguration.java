@@ -1,6 +1,8 @@
 package io.spring.batch.configuration;
 
 import io.spring.batch.domain.ColumnRangePartitioner;
+import io.spring.batch.domain.ConcurrencyPlanner;
+import io.spring.batch.domain.QuantileColumnRangePartitioner;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.batch.core.Job;
@@ -49,7 +51,6 @@ public class MasterConfiguration {
                            DirectChannel replies) {
         return managerStepBuilderFactory.get("masterStep").
                 partitioner("workerStep", partitioner).
-                gridSize(4).
                 outputChannel(requests).
                 inputChannel(replies).
                 build();
@@ -57,14 +58,25 @@ public class MasterConfiguration {
 
     @Bean
     @StepScope
-    public ColumnRangePartitioner partitioner() {
-        ColumnRangePartitioner columnRangePartitioner = new ColumnRangePartitioner();
+    public ColumnRangePartitioner partitioner(ConcurrencyPlanner concurrencyPlanner) {
+        ColumnRangePartitioner columnRangePartitioner = new QuantileColumnRangePartitioner();
         columnRangePartitioner.setColumn("id");
         columnRangePartitioner.setDataSource(dataSource);
         columnRangePartitioner.setTable("customer");
+        columnRangePartitioner.setConcurrencyPlanner(concurrencyPlanner);
         return columnRangePartitioner;
     }
 
+    @Bean
+    public ConcurrencyPlanner concurrencyPlanner() {
+        ConcurrencyPlanner concurrencyPlanner = new ConcurrencyPlanner();
+        concurrencyPlanner.setDataSource(dataSource);
+        concurrencyPlanner.setTargetRowsPerPartition(50_000);
+        // the workers prefetch next to their chunk transaction
+        concurrencyPlanner.setConnectionsPerWorker(2);
+        return concurrencyPlanner;
+    }
+
     @Bean
     public DirectChannel requests() {
         return new DirectChannel();
@@ -1,13 +1,18 @@
 package io.spring.batch.configuration;
 
+import io.spring.batch.domain.BulkLoadItemWriter;
+import io.spring.batch.domain.ConcurrencyPlanner;
 import io.spring.batch.domain.Customer;
 import io.spring.batch.domain.CustomerRowMapper;
+import io.spring.batch.domain.CustomerSizeEstimator;
+import io.spring.batch.domain.PrefetchingItemReader;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.integration.config.annotation.EnableBatchIntegration;
 import org.springframework.batch.integration.partition.RemotePartitioningWorkerStepBuilderFactory;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.BeanPropertyItemSqlParameterSourceProvider;
 import org.springframework.batch.item.database.JdbcBatchItemWriter;
 import org.springframework.batch.item.database.JdbcPagingItemReader;
@@ -23,6 +28,7 @@ import org.springframework.integration.amqp.dsl.Amqp;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.dsl.IntegrationFlow;
 import org.springframework.integration.dsl.IntegrationFlows;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import javax.sql.DataSource;
 import java.util.HashMap;
@@ -43,17 +49,46 @@ public class WorkerConfiguration {
     @Bean
     public Step workerStep(DirectChannel requests,
                            DirectChannel replies,
-                           JdbcPagingItemReader<Customer> pagingItemReader,
-                           JdbcBatchItemWriter<Customer> customerItemWriter) {
+                           PrefetchingItemReader<Customer> prefetchingItemReader,
+                           ItemWriter<Customer> customerItemWriter) {
         return workerStepBuilderFactory.get("workerStep").
                 inputChannel(requests).
                 outputChannel(replies).
                 <Customer, Customer>chunk(1000).
-                reader(pagingItemReader).
+                reader(prefetchingItemReader).
                 writer(customerItemWriter).
                 build();
     }
 
+    @Bean
+    @StepScope
+    public PrefetchingItemReader<Customer> prefetchingItemReader(JdbcPagingItemReader<Customer> pagingItemReader,
+                                                                 ThreadPoolTaskExecutor prefetchTaskExecutor) {
+        PrefetchingItemReader<Customer> prefetchingItemReader = new PrefetchingItemReader<>();
+        prefetchingItemReader.setDelegate(pagingItemReader);
+        prefetchingItemReader.setPageSize(1000);
+        prefetchingItemReader.setMaxPages(2);
+        prefetchingItemReader.setMaxBytes(16 * 1024 * 1024);
+        prefetchingItemReader.setItemSizeEstimator(new CustomerSizeEstimator());
+        prefetchingItemReader.setSaveState(false);
+        prefetchingItemReader.setTaskExecutor(prefetchTaskExecutor);
+        return prefetchingItemReader;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor prefetchTaskExecutor(ConcurrencyPlanner concurrencyPlanner) {
+        return concurrencyPlanner.taskExecutor("prefetch-");
+    }
+
+    @Bean
+    public ConcurrencyPlanner concurrencyPlanner() {
+        ConcurrencyPlanner concurrencyPlanner = new ConcurrencyPlanner();
+        concurrencyPlanner.setDataSource(dataSource);
+        // the prefetching reader queries next to the chunk transaction
+        concurrencyPlanner.setConnectionsPerWorker(2);
+        return concurrencyPlanner;
+    }
+
     @Bean
     @StepScope
     public JdbcPagingItemReader<Customer> pagingItemReader(@Value("#{stepExecutionContext['minValue']}") Long minValue,
@@ -62,7 +97,7 @@ public class WorkerConfiguration {
         MySqlPagingQueryProvider queryProvider = new MySqlPagingQueryProvider();
         queryProvider.setSelectClause("id, firstName, lastName, birthdate");
         queryProvider.setFromClause("from customer");
-        queryProvider.setWhereClause("where id >= " + minValue + " and id < " + maxValue);
+        queryProvider.setWhereClause("where id >= " + minValue + " and id <= " + maxValue);
 
         Map<String, Order> sortKeys = new HashMap<>(1);
 
@@ -73,6 +108,7 @@ public class WorkerConfiguration {
         return new JdbcPagingItemReaderBuilder<Customer>().
                 dataSource(dataSource).
                 fetchSize(1000).
+                pageSize(1000).
                 rowMapper(new CustomerRowMapper()).
                 queryProvider(queryProvider).
                 saveState(false).
@@ -81,6 +117,7 @@ public class WorkerConfiguration {
 
     @Bean
     @StepScope
+    @Profile("!bulkload")
     public JdbcBatchItemWriter<Customer> customerItemWriter() {
         return new JdbcBatchItemWriterBuilder<Customer>().
                 dataSource(dataSource).
@@ -89,6 +126,21 @@ public class WorkerConfiguration {
                 build();
     }
 
+    @Bean(name = "customerItemWriter")
+    @StepScope
+    @Profile("bulkload")
+    public BulkLoadItemWriter<Customer> bulkLoadItemWriter() {
+        BulkLoadItemWriter<Customer> customerItemWriter = new BulkLoadItemWriter<>();
+        customerItemWriter.setDataSource(dataSource);
+        customerItemWriter.setTable("new_customer");
+        customerItemWriter.setColumns("id, firstName, lastName, birthdate");
+        customerItemWriter.setFieldExtractor(customer -> new Object[]{customer.getId(),
+                customer.getFirstName(),
+                customer.getLastName(),
+                customer.getBirthdate()});
+        return customerItemWriter;
+    }
+
     @Bean
     public DirectChannel requests() {
         return new DirectChannel();
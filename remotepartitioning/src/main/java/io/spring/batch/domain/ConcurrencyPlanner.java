@@ -0,0 +1,144 @@
+package io.spring.batch.domain;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Derives how many partitions and threads a step should use from the size of
+ * the data and the resources of the JVM, instead of a hard-coded grid size and
+ * an unbounded number of threads.
+ * <p>
+ * The thread count is bounded by the available processors and by the JDBC
+ * connection pool (each worker holds one connection for its chunk transaction,
+ * or {@link #setConnectionsPerWorker(int) more} when its reader queries on a
+ * thread of its own, and one more is kept for the job repository). The grid
+ * size is the row count divided by the target number of rows per partition,
+ * never less than the thread count so every worker gets something to do.
+ */
+public class ConcurrencyPlanner {
+
+    private int availableProcessors = Runtime.getRuntime().availableProcessors();
+
+    private int connectionPoolSize = Integer.MAX_VALUE;
+
+    private long targetRowsPerPartition = 50_000;
+
+    private int maxGridSize = 256;
+
+    private int connectionsPerWorker = 1;
+
+    /**
+     * The data source the steps read from and write to. When it is a Hikari pool
+     * its maximum size caps the number of threads.
+     *
+     * @param dataSource a {@link DataSource}
+     */
+    public void setDataSource(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                connectionPoolSize = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Unable to inspect the connection pool", e);
+        }
+    }
+
+    /**
+     * The number of rows a single partition should carry.
+     *
+     * @param targetRowsPerPartition the number of rows, defaults to 50 000
+     */
+    public void setTargetRowsPerPartition(long targetRowsPerPartition) {
+        this.targetRowsPerPartition = targetRowsPerPartition;
+    }
+
+    /**
+     * The upper bound of the grid size, to keep the number of step executions in
+     * the job repository reasonable for very large tables.
+     *
+     * @param maxGridSize the maximum number of partitions, defaults to 256
+     */
+    public void setMaxGridSize(int maxGridSize) {
+        this.maxGridSize = maxGridSize;
+    }
+
+    /**
+     * The number of connections a worker may hold at once: 1 for a chunk
+     * oriented step, 2 when its reader queries on a thread of its own while the
+     * chunk transaction is open, as with a {@link PrefetchingItemReader}.
+     *
+     * @param connectionsPerWorker the number of connections, defaults to 1
+     */
+    public void setConnectionsPerWorker(int connectionsPerWorker) {
+        this.connectionsPerWorker = connectionsPerWorker;
+    }
+
+    /**
+     * The number of worker threads the JVM and the connection pool can sustain.
+     *
+     * @return the thread count, at least 1
+     */
+    public int getThreadCount() {
+        return Math.max(1, Math.min(availableProcessors, (connectionPoolSize - 1) / connectionsPerWorker));
+    }
+
+    /**
+     * The number of worker threads worth starting for a table, so small tables
+     * do not spawn threads that only fight over connections.
+     *
+     * @param rowCount the number of rows to process
+     * @return the thread count, at least 1
+     */
+    public int getThreadCount(long rowCount) {
+        long partitions = (rowCount + targetRowsPerPartition - 1) / targetRowsPerPartition;
+        return (int) Math.max(1, Math.min(getThreadCount(), partitions));
+    }
+
+    /**
+     * The number of partitions to split a table into.
+     *
+     * @param rowCount the number of rows to process
+     * @return the grid size, at least {@link #getThreadCount(long)}
+     */
+    public int getGridSize(long rowCount) {
+        long partitions = (rowCount + targetRowsPerPartition - 1) / targetRowsPerPartition;
+        return (int) Math.max(getThreadCount(rowCount), Math.min(maxGridSize, partitions));
+    }
+
+    /**
+     * Create a bounded, reusable executor sized with {@link #getThreadCount()}.
+     * Tasks beyond the pool size wait in the executor queue. The threads are
+     * daemons so an idle pool does not keep the JVM alive once the job is done.
+     *
+     * @param threadNamePrefix the prefix of the worker thread names
+     * @return an executor to be registered as a bean, so it is initialized and
+     * shut down with the application context
+     */
+    public ThreadPoolTaskExecutor taskExecutor(String threadNamePrefix) {
+        return taskExecutor(threadNamePrefix, 1);
+    }
+
+    /**
+     * Create a bounded executor for the threads every worker starts next to its
+     * own, such as the background thread of a {@link PrefetchingItemReader}, with
+     * <code>threadsPerWorker</code> threads for each of the
+     * {@link #getThreadCount()} workers.
+     *
+     * @param threadNamePrefix the prefix of the thread names
+     * @param threadsPerWorker the number of threads each worker runs at once
+     * @return an executor to be registered as a bean
+     */
+    public ThreadPoolTaskExecutor taskExecutor(String threadNamePrefix, int threadsPerWorker) {
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setCorePoolSize(getThreadCount() * threadsPerWorker);
+        taskExecutor.setMaxPoolSize(getThreadCount() * threadsPerWorker);
+        taskExecutor.setThreadNamePrefix(threadNamePrefix);
+        taskExecutor.setDaemon(true);
+        taskExecutor.setWaitForTasksToCompleteOnShutdown(true);
+        return taskExecutor;
+    }
+}
@@ -15,10 +15,15 @@
  */
 package io.spring.batch.domain;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.batch.item.file.transform.LineAggregator;
 
+import java.io.IOException;
+
 /**
  * @author Michael Minella
  */
@@ -26,6 +31,9 @@ public class CustomerLineAggregator implements LineAggregator<Customer> {
 
 	private ObjectMapper objectMapper = new ObjectMapper();
 
+	private ObjectWriter customerWriter = objectMapper.writerFor(Customer.class).
+			without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
 	@Override
 	public String aggregate(Customer item) {
 		try {
@@ -35,4 +43,12 @@ public class CustomerLineAggregator implements LineAggregator<Customer> {
 			throw new RuntimeException("Unable to serialize Customer", e);
 		}
 	}
+
+	/**
+	 * Writes the same JSON as {@link #aggregate(Customer)} to a generator, without
+	 * building a String and without flushing the generator.
+	 */
+	public void write(Customer item, JsonGenerator generator) throws IOException {
+		customerWriter.writeValue(generator, item);
+	}
 }
@@ -0,0 +1,68 @@
+package io.spring.batch.domain;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ColumnRangePartitioner} that balances partitions by row count instead of
+ * by value range. The boundaries are the quantiles of the column, computed with a
+ * single <code>NTILE</code> window query, so gaps in the key space (deletes, bulk
+ * imports with sparse ids) no longer leave one partition with most of the rows.
+ */
+public class QuantileColumnRangePartitioner extends ColumnRangePartitioner {
+
+    /**
+     * Partition a database table into <code>gridSize</code> ranges holding about
+     * the same number of rows. The execution context values have the same
+     * <code>minValue</code> and <code>maxValue</code> keys (both inclusive) as
+     * {@link ColumnRangePartitioner}, plus <code>partitionSize</code> with the
+     * number of rows counted in the range.
+     *
+     * @see Partitioner#partition(int)
+     */
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        gridSize = plannedGridSize(gridSize);
+        List<long[]> buckets = jdbcTemplate.query(
+                "SELECT MIN(" + column + "), MAX(" + column + "), COUNT(*) FROM " +
+                        "(SELECT " + column + ", NTILE(" + Math.max(gridSize, 1) + ") OVER (ORDER BY " + column + ") AS bucket " +
+                        "FROM " + table + ") buckets GROUP BY bucket ORDER BY 1",
+                (resultSet, i) -> new long[]{resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3)});
+
+        if (buckets.isEmpty()) {
+            return super.partition(gridSize);
+        }
+
+        List<long[]> ranges = new ArrayList<>(buckets.size());
+        for (long[] bucket : buckets) {
+            long[] previous = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (previous != null && bucket[0] <= previous[1]) {
+                // a run of equal values was split across two tiles, keep it in one range
+                previous[1] = Math.max(previous[1], bucket[1]);
+                previous[2] += bucket[2];
+            }
+            else {
+                ranges.add(bucket);
+            }
+        }
+
+        Map<String, ExecutionContext> result = new HashMap<>();
+        for (int number = 0; number < ranges.size(); number++) {
+            long[] range = ranges.get(number);
+            ExecutionContext value = new ExecutionContext();
+            result.put("partition" + number, value);
+
+            // close the gaps between tiles so rows inserted between them are still covered
+            value.putLong("minValue", number == 0 ? range[0] : ranges.get(number - 1)[1] + 1);
+            value.putLong("maxValue", range[1]);
+            value.putLong("partitionSize", range[2]);
+        }
+
+        return result;
+    }
+}